@@ -0,0 +1,120 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Measures the time and the memory allocated by the calling thread per operation of a task. The task is run for a
+ * number of warmup rounds first, the median time of the measured rounds is reported. The measurement is repeatable
+ * with the same arguments, but not as thorough as JMH, which is not available to the plug-in.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+final class Benchmark {
+
+    /** sink for results of the tasks, which keeps the JIT from removing the measured code */
+    static volatile long sink;
+
+    private final int m_warmupRounds;
+
+    private final int m_rounds;
+
+    private final com.sun.management.ThreadMXBean m_threads;
+
+    /**
+     * @param warmupRounds the number of rounds which are not measured
+     * @param rounds the number of measured rounds
+     */
+    Benchmark(final int warmupRounds, final int rounds) {
+        m_warmupRounds = warmupRounds;
+        m_rounds = rounds;
+        final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        m_threads = threads instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean)threads).isThreadAllocatedMemorySupported()
+                ? (com.sun.management.ThreadMXBean)threads : null;
+    }
+
+    /**
+     * Runs a task and prints the median time and the mean allocated bytes per operation.
+     *
+     * @param name the name printed in front of the result
+     * @param numOps the number of operations performed by a single run of the task
+     * @param task the task
+     * @return the median time per operation in nanoseconds
+     */
+    double run(final String name, final long numOps, final Runnable task) {
+        for (int i = 0; i < m_warmupRounds; i++) {
+            task.run();
+        }
+        final long[] times = new long[m_rounds];
+        long allocated = 0;
+        for (int i = 0; i < m_rounds; i++) {
+            final long bytes = allocatedBytes();
+            final long start = System.nanoTime();
+            task.run();
+            times[i] = System.nanoTime() - start;
+            allocated += allocatedBytes() - bytes;
+        }
+        Arrays.sort(times);
+        final double nsPerOp = (double)times[m_rounds / 2] / numOps;
+        if (m_threads == null) {
+            System.out.println(String.format("%-50s %10.2f ns/op", name, nsPerOp));
+        } else {
+            System.out.println(String.format("%-50s %10.2f ns/op %10.3f bytes/op", name, nsPerOp,
+                (double)allocated / numOps / m_rounds));
+        }
+        return nsPerOp;
+    }
+
+    private long allocatedBytes() {
+        return m_threads == null ? 0 : m_threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
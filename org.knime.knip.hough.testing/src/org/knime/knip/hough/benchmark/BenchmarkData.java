@@ -0,0 +1,153 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.knime.knip.hough.forest.HoughForest;
+import org.knime.knip.hough.forest.node.LeafNode;
+import org.knime.knip.hough.forest.node.Node;
+import org.knime.knip.hough.forest.node.SplitNode;
+import org.knime.knip.hough.forest.split.DefaultSplitFunction;
+import org.knime.knip.hough.forest.training.SampleTrainingObject;
+import org.knime.knip.hough.forest.training.TrainingObject;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Creates random feature images and forests of default split functions for the benchmarks.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+        // utility class
+    }
+
+    /**
+     * @param width the width
+     * @param height the height
+     * @param numFeatures the number of features, i.e. the size of the 3rd dimension
+     * @param seed the seed
+     * @return a feature image with uniformly distributed values in [0, 1)
+     */
+    static Img<FloatType> image(final int width, final int height, final int numFeatures,
+        final long seed) {
+        final Img<FloatType> img = ArrayImgs.floats(width, height, numFeatures);
+        final Random random = new Random(seed);
+        for (final FloatType t : img) {
+            t.set(random.nextFloat());
+        }
+        return img;
+    }
+
+    /**
+     * @param numTrees the number of trees
+     * @param depth the depth of the trees, all leaves are on this level
+     * @param patchSize width and height of the patches
+     * @param numFeatures the number of features
+     * @param seed the seed
+     * @return a forest of complete trees of random default split functions
+     */
+    static HoughForest forest(final int numTrees, final int depth, final int patchSize, final int numFeatures,
+        final long seed) {
+        final Random random = new Random(seed);
+        final List<SplitNode> trees = new ArrayList<>(numTrees);
+        for (int i = 0; i < numTrees; i++) {
+            trees.add((SplitNode)node(0, 0, null, depth, patchSize, numFeatures, random));
+        }
+        return new HoughForest(trees, new long[]{patchSize, patchSize, -1}, null);
+    }
+
+    /**
+     * @param patchSize width and height of the patches
+     * @param numFeatures the number of features
+     * @param random the random number generator
+     * @return a default split function comparing two random pixels of the same feature
+     */
+    static DefaultSplitFunction splitFunction(final int patchSize, final int numFeatures, final Random random) {
+        final int feature = random.nextInt(numFeatures);
+        return new DefaultSplitFunction(
+            new int[][]{{random.nextInt(patchSize), random.nextInt(patchSize), feature},
+                {random.nextInt(patchSize), random.nextInt(patchSize), feature}},
+            // the differences of two uniform values are in (-1, 1), most of them close to 0
+            (random.nextDouble() - 0.5) * 0.6);
+    }
+
+    private static Node node(final int depth, final int nodeIdx, final SplitNode parent, final int maxDepth,
+        final int patchSize, final int numFeatures, final Random random) {
+        final double p = random.nextDouble();
+        final double[] probabilities = new double[]{1 - p, p};
+        if (depth == maxDepth) {
+            return leaf(depth, nodeIdx, parent, probabilities, random);
+        }
+        final SplitNode node = new SplitNode(splitFunction(patchSize, numFeatures, random), depth, nodeIdx,
+            Collections.<int[]> emptyList(), probabilities, parent);
+        node.setLeftChild(node(depth + 1, 2 * nodeIdx + 1, node, maxDepth, patchSize, numFeatures, random));
+        node.setRightChild(node(depth + 1, 2 * nodeIdx + 2, node, maxDepth, patchSize, numFeatures, random));
+        return node;
+    }
+
+    private static LeafNode leaf(final int depth, final int nodeIdx, final SplitNode parent,
+        final double[] probabilities, final Random random) {
+        final List<TrainingObject<FloatType>> elements = new ArrayList<>();
+        final int numOffsets = random.nextInt(8);
+        for (int i = 0; i < numOffsets; i++) {
+            elements.add(new TrainingObject<>(ArrayImgs.floats(1, 1, 1), null, 1,
+                new int[]{random.nextInt(41) - 20, random.nextInt(41) - 20}, null, null, null, null));
+        }
+        return new LeafNode(new SampleTrainingObject<>(elements), probabilities, depth, nodeIdx, parent);
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.knime.knip.hough.features.FeatureTensor;
+import org.knime.knip.hough.features.FeatureTensor.Layout;
+import org.knime.knip.hough.forest.HoughForest;
+import org.knime.knip.hough.forest.flat.FlatForest;
+import org.knime.knip.hough.forest.flat.FlatTree;
+import org.knime.knip.hough.forest.flat.NodeMaps;
+import org.knime.knip.hough.forest.prediction.PredictionGrid;
+import org.knime.knip.hough.forest.split.DefaultSplitFunction;
+import org.knime.knip.hough.forest.split.EntangledDefaultSplitFunction;
+import org.knime.knip.hough.forest.split.SplitFunction;
+import org.knime.knip.hough.forest.split.SplitFunction.Split;
+import org.knime.knip.hough.forest.training.NodeGrid;
+import org.knime.knip.hough.forest.training.NodeTable;
+import org.knime.knip.hough.forest.training.TrainingObject;
+import org.knime.knip.hough.grid.Grid;
+import org.knime.knip.hough.grid.Grids;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Measures the throughput and the allocation rate of the split evaluation during learning and prediction. Run it
+ * with the plug-in and its dependencies on the class path, optionally with the number of measured rounds as
+ * argument. The allocation is measured for the calling thread only, so the split evaluation is allocation-free if the
+ * bytes per split are close to 0. Since the cases run in the same JVM, the profile of the JIT depends on the cases
+ * which ran before, so a case should only be compared with the same case of another build.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+public final class SplitEvaluationBenchmark {
+
+    private static final int WIDTH = 256;
+
+    private static final int HEIGHT = 256;
+
+    private static final int NUM_FEATURES = 8;
+
+    private static final int PATCH_SIZE = 16;
+
+    private static final int PATCH_GAP = 4;
+
+    private static final int NUM_SPLIT_FUNCTIONS = 64;
+
+    private static final int NUM_TREES = 8;
+
+    private static final int DEPTH = 12;
+
+    private SplitEvaluationBenchmark() {
+        // main class
+    }
+
+    /**
+     * @param args optional number of measured rounds
+     */
+    public static void main(final String[] args) {
+        final int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 15;
+        final Benchmark benchmark = new Benchmark(5, rounds);
+        final Img<FloatType> img = BenchmarkData.image(WIDTH, HEIGHT, NUM_FEATURES, 42);
+        final FeatureTensor tensor = FeatureTensor.create(img, Layout.PIXEL_MAJOR);
+
+        final Random random = new Random(7);
+        final List<SplitFunction> defaultSplits = new ArrayList<>();
+        final List<SplitFunction> entangledSplits = new ArrayList<>();
+        for (int i = 0; i < NUM_SPLIT_FUNCTIONS; i++) {
+            final DefaultSplitFunction split = BenchmarkData.splitFunction(PATCH_SIZE, NUM_FEATURES, random);
+            defaultSplits.add(split);
+            entangledSplits.add(new EntangledDefaultSplitFunction(split.getIndices(), split.getThreshold(),
+                new int[]{random.nextInt(9) - 4, random.nextInt(9) - 4}, new int[]{PATCH_GAP, PATCH_GAP}));
+        }
+        final List<TrainingObject<FloatType>> objects = trainingObjects(img, null);
+        final List<TrainingObject<FloatType>> tensorObjects = trainingObjects(img, tensor);
+        final long numSplits = (long)NUM_SPLIT_FUNCTIONS * objects.size();
+        benchmark.run("learning, default, random access", numSplits, () -> apply(defaultSplits, objects));
+        benchmark.run("learning, default, feature tensor", numSplits, () -> apply(defaultSplits, tensorObjects));
+        benchmark.run("learning, entangled, random access", numSplits, () -> apply(entangledSplits, objects));
+        benchmark.run("learning, entangled, feature tensor", numSplits,
+            () -> apply(entangledSplits, tensorObjects));
+
+        final HoughForest forest = BenchmarkData.forest(NUM_TREES, DEPTH, PATCH_SIZE, NUM_FEATURES, 11);
+        final FlatForest flatForest = forest.getFlatForest();
+        final long[] patchGap = new long[]{PATCH_GAP, PATCH_GAP, 0};
+        final long[] patchSize = new long[]{PATCH_SIZE, PATCH_SIZE, -1};
+        final PredictionGrid<FloatType> grid = new PredictionGrid<>(img, null, patchGap, patchSize);
+        final PredictionGrid<FloatType> tensorGrid = grid.copy(tensor);
+        // the per tree data of the prediction is created once per image and is not part of the split evaluation
+        final int[][] probeOffsets = new int[NUM_TREES][];
+        final int[][] featureOffsets = new int[NUM_TREES][];
+        final NodeMaps[] nodes = new NodeMaps[NUM_TREES];
+        for (int t = 0; t < NUM_TREES; t++) {
+            probeOffsets[t] = flatForest.getTree(t).getProbeOffsets(new int[]{PATCH_GAP, PATCH_GAP});
+            featureOffsets[t] = flatForest.getTree(t).getFeatureOffsets(tensor);
+            nodes[t] = new NodeMaps(flatForest.getTree(t), grid.getNumCells());
+        }
+        final long numTraversedSplits = (long)NUM_TREES * grid.getNumCells() * DEPTH;
+        benchmark.run("prediction, random access", numTraversedSplits,
+            () -> traverse(flatForest, grid, nodes, probeOffsets, null));
+        benchmark.run("prediction, feature tensor", numTraversedSplits,
+            () -> traverse(flatForest, tensorGrid, nodes, probeOffsets, null));
+        benchmark.run("prediction, feature tensor, precomputed offsets", numTraversedSplits,
+            () -> traverse(flatForest, tensorGrid, nodes, probeOffsets, featureOffsets));
+    }
+
+    private static List<TrainingObject<FloatType>> trainingObjects(final Img<FloatType> img,
+        final FeatureTensor tensor) {
+        final Grid<FloatType> grid =
+            Grids.createGrid(img, new long[]{PATCH_GAP, PATCH_GAP, 0}, new long[]{PATCH_SIZE, PATCH_SIZE, -1});
+        final int width = (int)grid.dimension(0);
+        final int height = (int)grid.dimension(1);
+        @SuppressWarnings("unchecked")
+        final RandomAccess<FloatType>[] randomAccess = new RandomAccess[]{img.randomAccess()};
+        @SuppressWarnings("unchecked")
+        final TrainingObject<FloatType>[][] trainingGrid = new TrainingObject[width][height];
+        final NodeGrid nodeGrid = new NodeGrid(NodeTable.create(1), width, height, false, false);
+        final List<TrainingObject<FloatType>> objects = new ArrayList<>();
+        final RandomAccess<RandomAccessibleInterval<FloatType>> raGrid = grid.randomAccess();
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                final int[] position = new int[]{x, y, 0};
+                raGrid.setPosition(position);
+                trainingGrid[x][y] = new TrainingObject<>(raGrid.get(), randomAccess, 0, new int[0], trainingGrid,
+                    position, nodeGrid, tensor);
+                objects.add(trainingGrid[x][y]);
+            }
+        }
+        return objects;
+    }
+
+    private static void apply(final List<SplitFunction> splitFunctions,
+        final List<TrainingObject<FloatType>> objects) {
+        final int[] stride = new int[]{PATCH_GAP, PATCH_GAP};
+        long numLeft = 0;
+        for (final SplitFunction splitFunction : splitFunctions) {
+            for (int i = 0; i < objects.size(); i++) {
+                if (splitFunction.apply(objects.get(i), 0, stride) == Split.LEFT) {
+                    numLeft++;
+                }
+            }
+        }
+        Benchmark.sink = numLeft;
+    }
+
+    private static void traverse(final FlatForest forest, final PredictionGrid<FloatType> grid,
+        final NodeMaps[] nodes, final int[][] probeOffsets, final int[][] featureOffsets) {
+        final RandomAccess<FloatType> raFeatures = grid.randomAccess();
+        long sum = 0;
+        for (int t = 0; t < forest.getNumTrees(); t++) {
+            final FlatTree tree = forest.getTree(t);
+            for (int cell = 0; cell < grid.getNumCells(); cell++) {
+                int node = 0;
+                while (!tree.isLeaf(node)) {
+                    node = tree.getChild(node, grid, cell, raFeatures, nodes[t], probeOffsets[t],
+                        featureOffsets == null ? null : featureOffsets[t]);
+                }
+                sum += node;
+            }
+        }
+        Benchmark.sink = sum;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.knime.knip.hough.forest.prediction.FixedPointVotes;
+import org.knime.knip.hough.forest.prediction.SparseVotes;
+import org.knime.knip.hough.forest.prediction.VoteAccumulator;
+
+/**
+ * Measures the throughput of the vote accumulation of parallel trees. Every thread adds the same number of votes
+ * into a small hot region, either into its own {@link SparseVotes}, which are summed up afterwards, or into one shared
+ * {@link FixedPointVotes}. Run it with the plug-in and its dependencies on the class path, optionally with the
+ * numbers of threads as arguments. The contention of the shared votes only shows if the machine has at least as many
+ * cores as threads. The allocated bytes only cover the calling thread, which sums up the votes of the threads.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+public final class VoteAccumulationBenchmark {
+
+    private static final int WIDTH = 1024;
+
+    private static final int HEIGHT = 1024;
+
+    // votes land in a square of this size in the middle of the votes
+    private static final int HOT_REGION = 256;
+
+    private static final int NUM_VOTES = 1 << 21;
+
+    private VoteAccumulationBenchmark() {
+        // main class
+    }
+
+    /**
+     * @param args optional numbers of threads
+     * @throws Exception if a thread fails
+     */
+    public static void main(final String[] args) throws Exception {
+        final int[] numThreads = args.length > 0 ? new int[args.length] : new int[]{8, 16, 32};
+        for (int i = 0; i < args.length; i++) {
+            numThreads[i] = Integer.parseInt(args[i]);
+        }
+        System.out.println("available processors: " + Runtime.getRuntime().availableProcessors());
+        final int[] positions = new int[2 * NUM_VOTES];
+        final Random random = new Random(3);
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = (WIDTH - HOT_REGION) / 2 + random.nextInt(HOT_REGION);
+        }
+        final Benchmark benchmark = new Benchmark(3, 11);
+        for (final int threads : numThreads) {
+            final ExecutorService es = Executors.newFixedThreadPool(threads);
+            try {
+                benchmark.run(threads + " threads, per-thread buffers", NUM_VOTES,
+                    () -> accumulate(es, threads, positions, false));
+                benchmark.run(threads + " threads, shared fixed-point", NUM_VOTES,
+                    () -> accumulate(es, threads, positions, true));
+            } finally {
+                es.shutdown();
+            }
+        }
+    }
+
+    private static void accumulate(final ExecutorService es, final int numThreads, final int[] positions,
+        final boolean shared) {
+        final FixedPointVotes sharedVotes = shared ? new FixedPointVotes(WIDTH, HEIGHT) : null;
+        final List<Callable<VoteAccumulator>> tasks = new ArrayList<>(numThreads);
+        for (int t = 0; t < numThreads; t++) {
+            final int from = (int)((long)NUM_VOTES * t / numThreads);
+            final int to = (int)((long)NUM_VOTES * (t + 1) / numThreads);
+            tasks.add(() -> {
+                final VoteAccumulator votes = shared ? sharedVotes : new SparseVotes(WIDTH, HEIGHT);
+                for (int i = from; i < to; i++) {
+                    votes.add(positions[2 * i], positions[2 * i + 1], 0.01);
+                }
+                return votes;
+            });
+        }
+        final SparseVotes sum = new SparseVotes(WIDTH, HEIGHT);
+        try {
+            for (final Future<VoteAccumulator> future : es.invokeAll(tasks)) {
+                final VoteAccumulator votes = future.get();
+                if (!shared) {
+                    sum.add((SparseVotes)votes);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (final ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        if (shared) {
+            sharedVotes.addTo(sum);
+        }
+        Benchmark.sink = (long)sum.get(WIDTH / 2, HEIGHT / 2);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.forest.node;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.knime.knip.hough.forest.split.AncestorNodePairSplitFunction;
+
+/**
+ * Testcases for {@link HeapIndices}, compared to following the parents in a complete tree.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+public class HeapIndicesTest {
+
+    private static final int NUM_NODES = (1 << 7) - 1;
+
+    /**
+     * Test for the depth and the descendant query.
+     */
+    @Test
+    public void testDescendant() {
+        for (int i = 0; i < NUM_NODES; i++) {
+            assertEquals(depth(i), HeapIndices.getDepth(i));
+            for (int j = 0; j < NUM_NODES; j++) {
+                assertEquals(isDescendant(i, j), HeapIndices.isDescendant(i, j));
+            }
+        }
+        // deepest valid index
+        assertEquals(HeapIndices.MAX_DEPTH, HeapIndices.getDepth(Integer.MAX_VALUE - 1));
+        assertEquals(true, HeapIndices.isDescendant(Integer.MAX_VALUE - 1, 0));
+    }
+
+    /**
+     * Test for the ancestor pair split, which is decided on the node indices.
+     */
+    @Test
+    public void testAncestorPair() {
+        for (int i = 0; i < NUM_NODES; i++) {
+            for (int j = 0; j < NUM_NODES; j++) {
+                for (int threshold = 1; threshold <= 5; threshold++) {
+                    assertEquals(isAncestorPairLeft(i, j, threshold),
+                        AncestorNodePairSplitFunction.isLeft(i, j, threshold));
+                }
+            }
+        }
+    }
+
+    private static int parent(final int nodeIdx) {
+        return nodeIdx == 0 ? -1 : (nodeIdx - 1) / 2;
+    }
+
+    private static int depth(final int nodeIdx) {
+        int depth = 0;
+        for (int i = nodeIdx; i > 0; i = parent(i)) {
+            depth++;
+        }
+        return depth;
+    }
+
+    private static boolean isDescendant(final int nodeIdx, final int ancestorIdx) {
+        for (int i = parent(nodeIdx); i >= 0; i = parent(i)) {
+            if (i == ancestorIdx) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // same as AncestorNodePairSplitFunction following the parents
+    private static boolean isAncestorPairLeft(final int nodeIdx1, final int nodeIdx2, final int threshold) {
+        int probe1 = nodeIdx1;
+        int probe2 = nodeIdx2;
+        int counter = Math.abs(depth(probe1) - depth(probe2));
+        while (depth(probe1) > depth(probe2)) {
+            probe1 = parent(probe1);
+        }
+        while (depth(probe2) > depth(probe1)) {
+            probe2 = parent(probe2);
+        }
+        while (parent(probe1) >= 0) {
+            probe1 = parent(probe1);
+            probe2 = parent(probe2);
+            if (probe1 == probe2) {
+                return true;
+            }
+            counter++;
+            if (counter > threshold) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
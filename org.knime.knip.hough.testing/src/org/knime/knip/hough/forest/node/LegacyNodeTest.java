@@ -0,0 +1,121 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.forest.node;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ObjectInputStream;
+import java.lang.reflect.Field;
+import java.util.Base64;
+
+import org.junit.Test;
+
+/**
+ * Testcases for reading {@link Node}s of a model saved while every node still kept its list of offset vectors.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+public class LegacyNodeTest {
+
+    /**
+     * A serialized split node holding the offsets (1,2), (3,4) and (-5,6), with a left leaf holding (1,2) and (3,4) and
+     * a right leaf holding (-5,6).
+     */
+    private static final String LEGACY_TREE =
+            "rO0ABXNyACpvcmcua25pbWUua25pcC5ob3VnaC5mb3Jlc3Qubm9kZS5TcGxpdE5vZGUAAAAAAAAAAQIAA0wAC21fbGVmdENo"
+            + "aWxkdAAnTG9yZy9rbmltZS9rbmlwL2hvdWdoL2ZvcmVzdC9ub2RlL05vZGU7TAAMbV9yaWdodENoaWxkcQB+AAFMAA9tX3Nw"
+            + "bGl0RnVuY3Rpb250ADFMb3JnL2tuaW1lL2tuaXAvaG91Z2gvZm9yZXN0L3NwbGl0L1NwbGl0RnVuY3Rpb247eHIAJW9yZy5r"
+            + "bmltZS5rbmlwLmhvdWdoLmZvcmVzdC5ub2RlLk5vZGUAAAAAAAAAAQIABkkAB21fZGVwdGhJAAltX25vZGVJZHhbAAxtX29m"
+            + "ZnNldE1lYW50AAJbREwACW1fb2Zmc2V0c3QAEExqYXZhL3V0aWwvTGlzdDtMAAhtX3BhcmVudHQALExvcmcva25pbWUva25p"
+            + "cC9ob3VnaC9mb3Jlc3Qvbm9kZS9TcGxpdE5vZGU7WwAPbV9wcm9iYWJpbGl0aWVzcQB+AAR4cAAAAAAAAAAAdXIAAltEPqaM"
+            + "FKtjWh4CAAB4cAAAAAK/1VVVVVVVVUAQAAAAAAAAc3IAGmphdmEudXRpbC5BcnJheXMkQXJyYXlMaXN02aQ8vs2IBtICAAFb"
+            + "AAFhdAATW0xqYXZhL2xhbmcvT2JqZWN0O3hwdXIAA1tbSRf35E8Zj4k8AgAAeHAAAAADdXIAAltJTbpgJnbqsqUCAAB4cAAA"
+            + "AAIAAAABAAAAAnVxAH4ADwAAAAIAAAADAAAABHVxAH4ADwAAAAL////7AAAABnB1cQB+AAgAAAACP9mZmZmZmZo/4zMzMzMz"
+            + "M3NyAClvcmcua25pbWUua25pcC5ob3VnaC5mb3Jlc3Qubm9kZS5MZWFmTm9kZQAAAAAAAAABAgACSQAVbV9udW1FbGVtZW50"
+            + "c09mQ2xhenowSQAVbV9udW1FbGVtZW50c09mQ2xhenoxeHEAfgADAAAAAQAAAAF1cQB+AAgAAAACQAAAAAAAAABACAAAAAAA"
+            + "AHNyABNqYXZhLnV0aWwuQXJyYXlMaXN0eIHSHZnHYZ0DAAFJAARzaXpleHAAAAACdwQAAAACdXEAfgAPAAAAAgAAAAEAAAAC"
+            + "dXEAfgAPAAAAAgAAAAMAAAAEeHEAfgAHdXEAfgAIAAAAAj/VVVVVVVVVP+VVVVVVVVUAAAABAAAAAnNxAH4AFAAAAAEAAAAC"
+            + "dXEAfgAIAAAAAsAUAAAAAAAAQBgAAAAAAABzcQB+ABcAAAABdwQAAAABdXEAfgAPAAAAAv////sAAAAGeHEAfgAHdXEAfgAI"
+            + "AAAAAj/oAAAAAAAAP9AAAAAAAAAAAAADAAAAAXNyADZvcmcua25pbWUua25pcC5ob3VnaC5mb3Jlc3Quc3BsaXQuRGVmYXVs"
+            + "dFNwbGl0RnVuY3Rpb24AAAAAAAAAAQIAAkQAC21fdGhyZXNob2xkWwAJbV9pbmRpY2VzdAADW1tJeHA/0AAAAAAAAHVxAH4A"
+            + "DQAAAAJ1cQB+AA8AAAADAAAAAAAAAAEAAAAAdXEAfgAPAAAAAwAAAAIAAAADAAAAAA==";
+
+    /**
+     * Test that the leaves convert the offset vectors and that no node keeps the list after reading.
+     *
+     * @throws Exception if the tree cannot be read
+     */
+    @Test
+    public void testReadLegacyTree() throws Exception {
+        final SplitNode root;
+        try (ObjectInputStream in =
+            new ObjectInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(LEGACY_TREE)))) {
+            root = (SplitNode)in.readObject();
+        }
+        assertArrayEquals(new double[]{-1 / 3.0, 4}, root.getOffsetMean(), 1e-9);
+        assertNull(legacyOffsets(root));
+
+        final LeafNode left = (LeafNode)root.getLeftChild();
+        assertArrayEquals(new int[]{1, 2, 3, 4}, left.getOffsets());
+        assertNull(legacyOffsets(left));
+        final LeafNode right = (LeafNode)root.getRightChild();
+        assertArrayEquals(new int[]{-5, 6}, right.getOffsets());
+        assertNull(legacyOffsets(right));
+        assertSame(root, right.getParent());
+    }
+
+    private static Object legacyOffsets(final Node node) throws ReflectiveOperationException {
+        final Field field = Node.class.getDeclaredField("m_legacyOffsets");
+        field.setAccessible(true);
+        return field.get(node);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.forest.prediction;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Testcases for {@link FixedPointVotes}.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+public class FixedPointVotesTest {
+
+    /**
+     * Test that the votes of several threads sum up to the votes of a single thread.
+     *
+     * @throws Exception if a thread fails
+     */
+    @Test
+    public void testParallel() throws Exception {
+        final FixedPointVotes serial = new FixedPointVotes(100, 70);
+        final FixedPointVotes parallel = new FixedPointVotes(100, 70);
+        for (int t = 0; t < 8; t++) {
+            addVotes(serial, t);
+        }
+        final ExecutorService es = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                futures.add(es.submit(() -> addVotes(parallel, thread)));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            es.shutdown();
+        }
+        for (int x = 0; x < 100; x++) {
+            for (int y = 0; y < 70; y++) {
+                assertEquals(serial.get(x, y), parallel.get(x, y), 0);
+            }
+        }
+        // thread t adds 10 * (t + 1) / 3 to pixel (0, 0)
+        assertEquals(10 * 36 / 3.0, parallel.get(0, 0), 1e-4);
+    }
+
+    /**
+     * Test that the sum of a pixel saturates instead of overflowing.
+     */
+    @Test
+    public void testSaturation() {
+        final FixedPointVotes votes = new FixedPointVotes(10, 10);
+        votes.add(3, 4, 1 << 30);
+        votes.add(3, 4, 1 << 30);
+        votes.add(3, 4, 1 << 30);
+        assertEquals(Math.pow(2, 31), votes.get(3, 4), 0);
+        votes.add(3, 4, 1);
+        assertEquals(Math.pow(2, 31), votes.get(3, 4), 0);
+        // other pixels are not affected
+        votes.add(4, 4, 1);
+        assertEquals(1, votes.get(4, 4), 0);
+    }
+
+    private static void addVotes(final FixedPointVotes votes, final int thread) {
+        for (int i = 0; i < 10; i++) {
+            for (int x = 0; x < 100; x++) {
+                for (int y = 0; y < 70; y++) {
+                    votes.add(x, y, (x + y + thread + 1) / 3.0);
+                }
+            }
+        }
+    }
+}
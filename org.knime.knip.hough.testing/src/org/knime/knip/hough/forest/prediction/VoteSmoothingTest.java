@@ -0,0 +1,217 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.forest.prediction;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import org.knime.knip.core.KNIPGateway;
+
+import net.imagej.ops.OpService;
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+/**
+ * Testcases for {@link VoteSmoothing}, compared to a plain convolution with the same kernels and to the convolution of
+ * ImageJ Ops.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+public class VoteSmoothingTest {
+
+    /**
+     * Test for 2D votes, with small sigmas convolved directly and large sigmas convolved by FFTs. For lines of 64 or
+     * 97 pixels, sigmas from 5 on are convolved by FFTs. The votes must not differ by more than 1e-5 times their
+     * maximum from the plain convolution.
+     */
+    @Test
+    public void test2D() {
+        final Random random = new Random(42);
+        for (final double sigma : new double[]{0.5, 2, 5, 12, 30}) {
+            final RandomAccessibleInterval<FloatType> votes = createVotes(random, 97, 64);
+            assertParity(votes, new double[]{sigma, sigma}, convolve(votes, new double[]{sigma, sigma}), 1e-5);
+        }
+        // different sigmas, i.e. an FFT in x and a direct convolution in y direction
+        final RandomAccessibleInterval<FloatType> votes = createVotes(random, 97, 64);
+        assertParity(votes, new double[]{20, 3}, convolve(votes, new double[]{20, 3}), 1e-5);
+    }
+
+    /**
+     * Test for the votes of several scales stacked to 3D.
+     */
+    @Test
+    public void test3D() {
+        final Random random = new Random(42);
+        final List<RandomAccessibleInterval<FloatType>> votesAllSc = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            votesAllSc.add(createVotes(random, 120, 80));
+        }
+        final RandomAccessibleInterval<FloatType> votes = Views.stack(votesAllSc);
+        assertParity(votes, new double[]{3, 3, 1}, convolve(votes, new double[]{3, 3, 1}), 1e-5);
+        assertParity(votes, new double[]{15, 15, 1}, convolve(votes, new double[]{15, 15, 1}), 1e-5);
+    }
+
+    /**
+     * Test for the convolution of ImageJ Ops, which is used by the node if the votes are smoothed by convolution.
+     */
+    @Test
+    public void testOps() {
+        final Random random = new Random(42);
+        final OpService ops = KNIPGateway.ops();
+        for (final double sigma : new double[]{2, 12}) {
+            final RandomAccessibleInterval<FloatType> votes = createVotes(random, 97, 64);
+            final RandomAccessibleInterval<DoubleType> kernel = ops.create().kernelGauss(sigma, sigma);
+            assertParity(votes, new double[]{sigma, sigma}, ops.filter().convolve(votes, kernel), 1e-4);
+        }
+    }
+
+    /**
+     * Test for the recursive filter, which only approximates the Gaussian.
+     */
+    @Test
+    public void testRecursive() {
+        final Random random = new Random(42);
+        final RandomAccessibleInterval<FloatType> votes = createVotes(random, 150, 100);
+        final OpService ops = KNIPGateway.ops();
+        final RandomAccessibleInterval<DoubleType> kernel = ops.create().kernelGauss(4, 4);
+        final RandomAccessibleInterval<FloatType> expected = ops.filter().convolve(votes, kernel);
+        assertTrue(maxDifference(expected, VoteSmoothing.smooth(votes, new double[]{4, 4}, true, null)) < 0.1
+            * max(expected));
+    }
+
+    private static void assertParity(final RandomAccessibleInterval<FloatType> votes, final double[] sigmas,
+        final RandomAccessibleInterval<FloatType> expected, final double tolerance) {
+        final double max = max(expected);
+        final ExecutorService es = Executors.newFixedThreadPool(3);
+        try {
+            assertTrue(maxDifference(expected, VoteSmoothing.smooth(votes, sigmas, false, null)) < tolerance * max);
+            assertTrue(maxDifference(expected, VoteSmoothing.smooth(votes, sigmas, false, es)) < tolerance * max);
+        } finally {
+            es.shutdown();
+        }
+    }
+
+    // convolves each dimension directly with the kernel of VoteSmoothing, values outside of the votes are zero
+    private static RandomAccessibleInterval<FloatType> convolve(final RandomAccessibleInterval<FloatType> votes,
+        final double[] sigmas) {
+        final long[] dims = Intervals.dimensionsAsLongArray(votes);
+        double[] data = new double[(int)Intervals.numElements(votes)];
+        final Cursor<FloatType> cursor = Views.flatIterable(votes).cursor();
+        for (int i = 0; i < data.length; i++) {
+            data[i] = cursor.next().get();
+        }
+        int stride = 1;
+        for (int d = 0; d < dims.length; d++) {
+            final int length = (int)dims[d];
+            final float[] kernel = VoteSmoothing.getKernel(sigmas[d]);
+            final int radius = kernel.length / 2;
+            final double[] smoothed = new double[data.length];
+            for (int i = 0; i < data.length; i++) {
+                final int k = i / stride % length;
+                for (int j = Math.max(-radius, -k); j <= Math.min(radius, length - 1 - k); j++) {
+                    smoothed[i] += kernel[j + radius] * data[i + j * stride];
+                }
+            }
+            data = smoothed;
+            stride *= length;
+        }
+        final ArrayImg<FloatType, ?> result = ArrayImgs.floats(dims);
+        final Cursor<FloatType> resultCursor = result.cursor();
+        for (int i = 0; i < data.length; i++) {
+            resultCursor.next().set((float)data[i]);
+        }
+        return result;
+    }
+
+    // sparse votes like the ones of a forest
+    private static RandomAccessibleInterval<FloatType> createVotes(final Random random, final int width,
+        final int height) {
+        final RandomAccessibleInterval<FloatType> votes = ArrayImgs.floats(width, height);
+        final RandomAccess<FloatType> randomAccess = votes.randomAccess();
+        for (int i = 0; i < width * height / 20; i++) {
+            randomAccess.setPosition(new int[]{random.nextInt(width), random.nextInt(height)});
+            randomAccess.get().set(randomAccess.get().get() + random.nextFloat());
+        }
+        return votes;
+    }
+
+    private static double max(final RandomAccessibleInterval<FloatType> img) {
+        double max = 0;
+        for (final FloatType value : Views.iterable(img)) {
+            max = Math.max(max, value.get());
+        }
+        return max;
+    }
+
+    private static double maxDifference(final RandomAccessibleInterval<FloatType> expected,
+        final RandomAccessibleInterval<FloatType> actual) {
+        double maxDifference = 0;
+        final Cursor<FloatType> cursor = Views.flatIterable(expected).cursor();
+        final RandomAccess<FloatType> randomAccess = actual.randomAccess();
+        while (cursor.hasNext()) {
+            cursor.fwd();
+            randomAccess.setPosition(cursor);
+            maxDifference = Math.max(maxDifference, Math.abs(cursor.get().get() - randomAccess.get().get()));
+        }
+        return maxDifference;
+    }
+}
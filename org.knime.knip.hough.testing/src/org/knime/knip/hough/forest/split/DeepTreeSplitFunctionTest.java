@@ -0,0 +1,192 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.forest.split;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.knime.knip.hough.forest.node.HeapIndices;
+import org.knime.knip.hough.forest.node.SplitNode;
+import org.knime.knip.hough.forest.split.SplitFunction.Split;
+import org.knime.knip.hough.forest.training.NodeGrid;
+import org.knime.knip.hough.forest.training.NodeTable;
+import org.knime.knip.hough.forest.training.TrainingObject;
+
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Testcases for the entangled split functions on nodes deeper than {@link HeapIndices#MAX_DEPTH}, whose node indices
+ * have overflowed while learning.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+public class DeepTreeSplitFunctionTest {
+
+    private NodeTable m_nodes;
+
+    // ids of the nodes by their path from the root, 'L' and 'R' denote the left and right child
+    private Map<String, Integer> m_ids;
+
+    private NodeGrid m_nodeGrid;
+
+    private TrainingObject<FloatType> m_patch;
+
+    /**
+     * Creates a grid of three patches, the patch at (0, 0) probes the patches at (1, 0) and (2, 0).
+     */
+    @Before
+    public void setUp() {
+        m_nodes = new NodeTable();
+        m_ids = new HashMap<>();
+        m_ids.put("", m_nodes.add(node(""), NodeTable.NO_PARENT));
+        m_nodeGrid = new NodeGrid(new NodeTable[] { m_nodes }, 3, 1, false, false);
+        m_patch = new TrainingObject<>(ArrayImgs.floats(1, 1), null, 1, new int[] { 0, 0 }, null, new int[] { 0, 0 },
+            m_nodeGrid, null);
+    }
+
+    /**
+     * Test for the descendant split, if an overflowed index of an ancestor equals the index of the split function.
+     */
+    @Test
+    public void testDescendant() {
+        final String deep = repeat('L', 30) + "RRL";
+        // the ancestor at depth 32 has wrapped around to the index of the right child of the root
+        assertEquals(2, nodeIdx(deep.substring(0, 32)));
+        reach(1, deep);
+        assertEquals(Split.LEFT, descendant(1));
+        assertEquals(Split.RIGHT, descendant(2));
+        assertEquals(Split.LEFT, descendant(3));
+        assertEquals(Split.RIGHT, descendant(4));
+        assertEquals(Split.LEFT, descendant((1 << 30) - 1));
+        assertEquals(Split.RIGHT, descendant((1 << 30) - 2));
+    }
+
+    /**
+     * Test for the ancestor pair split, if the overflowed indices of the nodes are equal.
+     */
+    @Test
+    public void testAncestorPair() {
+        final String left = "L" + repeat('L', 32);
+        final String right = "R" + repeat('L', 32);
+        assertEquals(nodeIdx(left), nodeIdx(right));
+        reach(1, left);
+        reach(2, right);
+        assertNotEquals(m_nodeGrid.getNodeId(0, 1, 0), m_nodeGrid.getNodeId(0, 2, 0));
+        assertEquals(Split.RIGHT, ancestorPair(10));
+
+        // siblings meet after the first level regardless of the threshold
+        reach(2, repeat('L', 32) + "R");
+        assertEquals(Split.LEFT, ancestorPair(1));
+
+        // same depth, meeting after three levels
+        final String prefix = repeat('L', 31);
+        reach(1, prefix + "LLL");
+        reach(2, prefix + "RLL");
+        assertEquals(Split.RIGHT, ancestorPair(1));
+        assertEquals(Split.LEFT, ancestorPair(2));
+
+        // different depths, taking the deeper node one level up counts as a passed level
+        reach(2, prefix + "RL");
+        assertEquals(Split.RIGHT, ancestorPair(1));
+        assertEquals(Split.LEFT, ancestorPair(2));
+    }
+
+    private Split descendant(final int nodeIdx) {
+        return new NodeDescendantSplitFunction(new int[] { 1, 0 }, nodeIdx, null).apply(m_patch, 0, null);
+    }
+
+    private Split ancestorPair(final int threshold) {
+        return new AncestorNodePairSplitFunction(new int[] { 1, 0 }, new int[] { 2, 0 }, threshold, null)
+            .apply(m_patch, 0, null);
+    }
+
+    // lets the patch at (x, 0) reach the node of the path
+    private void reach(final int x, final String path) {
+        m_nodeGrid.setNodeId(0, x, 0, id(path));
+    }
+
+    // adds the nodes along the path to the table like the learner does
+    private int id(final String path) {
+        Integer id = m_ids.get(path);
+        if (id == null) {
+            id = m_nodes.add(node(path), id(path.substring(0, path.length() - 1)));
+            m_ids.put(path, id);
+        }
+        return id;
+    }
+
+    private static SplitNode node(final String path) {
+        return new SplitNode(null, path.length(), nodeIdx(path), Collections.<int[]> emptyList(),
+            new double[] { 0.5, 0.5 }, null);
+    }
+
+    // the index computed by the learner, which overflows below depth 30
+    private static int nodeIdx(final String path) {
+        int nodeIdx = 0;
+        for (final char c : path.toCharArray()) {
+            nodeIdx = (nodeIdx * 2) + (c == 'L' ? 1 : 2);
+        }
+        return nodeIdx;
+    }
+
+    private static String repeat(final char c, final int n) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,391 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.features;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+
+/**
+ * A feature descriptor materialized into a contiguous float array. Values are read by direct index instead of going
+ * through the views created by {@link FeatureDescriptor#apply(RandomAccessibleInterval)}.
+ * 
+ * @author Simon Schmid, University of Konstanz
+ */
+public final class FeatureTensor {
+
+	/**
+	 * Memory layout of a {@link FeatureTensor}.
+	 */
+	public enum Layout {
+		/** All features of a pixel are stored next to each other. */
+		PIXEL_MAJOR("Pixel-major"),
+		/** Each feature is stored as a separate plane. */
+		CHANNEL_MAJOR("Channel-major");
+
+		private final String m_name;
+
+		private Layout(final String name) {
+			m_name = name;
+		}
+
+		/**
+		 * @return the name of the layout as shown in the dialog
+		 */
+		public String getName() {
+			return m_name;
+		}
+
+		/**
+		 * @return the names of all layouts
+		 */
+		public static String[] getNames() {
+			final Layout[] values = values();
+			final String[] names = new String[values.length];
+			for (int i = 0; i < values.length; i++) {
+				names[i] = values[i].getName();
+			}
+			return names;
+		}
+
+		/**
+		 * @param name the name of a layout
+		 * @return the layout with the given name
+		 */
+		public static Layout fromName(final String name) {
+			for (final Layout layout : values()) {
+				if (layout.getName().equals(name)) {
+					return layout;
+				}
+			}
+			throw new IllegalArgumentException("Unknown layout: " + name);
+		}
+	}
+
+	/**
+	 * Precision of the values stored in a {@link FeatureTensor}.
+	 */
+	public enum Precision {
+		/** Values are stored as floats. */
+		FLOAT("32 bit float", 0),
+		/** Values are quantized to 65536 levels. */
+		SHORT("16 bit", 1 << 16),
+		/** Values are quantized to 256 levels. */
+		BYTE("8 bit", 1 << 8);
+
+		private final String m_name;
+		private final int m_numLevels;
+
+		private Precision(final String name, final int numLevels) {
+			m_name = name;
+			m_numLevels = numLevels;
+		}
+
+		/**
+		 * @return the name of the precision as shown in the dialog
+		 */
+		public String getName() {
+			return m_name;
+		}
+
+		/**
+		 * @return the number of quantization levels, 0 if the values are not quantized
+		 */
+		public int getNumLevels() {
+			return m_numLevels;
+		}
+
+		/**
+		 * @return the names of all precisions
+		 */
+		public static String[] getNames() {
+			final Precision[] values = values();
+			final String[] names = new String[values.length];
+			for (int i = 0; i < values.length; i++) {
+				names[i] = values[i].getName();
+			}
+			return names;
+		}
+
+		/**
+		 * @param name the name of a precision
+		 * @return the precision with the given name
+		 */
+		public static Precision fromName(final String name) {
+			for (final Precision precision : values()) {
+				if (precision.getName().equals(name)) {
+					return precision;
+				}
+			}
+			throw new IllegalArgumentException("Unknown precision: " + name);
+		}
+	}
+
+	// exactly one of the arrays is used depending on the precision
+	private final float[] m_data;
+	private final short[] m_shortData;
+	private final byte[] m_byteData;
+	private final long[] m_min;
+	private final int m_strideX;
+	private final int m_strideY;
+	private final int m_strideFeature;
+
+	// a quantized value q of feature f corresponds to q * m_scale[f] + m_offset[f]
+	private final float[] m_scale;
+	private final float[] m_offset;
+	private final long m_numClamped;
+
+	private FeatureTensor(final float[] data, final short[] shortData, final byte[] byteData, final long[] min,
+			final int strideX, final int strideY, final int strideFeature, final float[] scale, final float[] offset,
+			final long numClamped) {
+		m_data = data;
+		m_shortData = shortData;
+		m_byteData = byteData;
+		m_min = min;
+		m_strideX = strideX;
+		m_strideY = strideY;
+		m_strideFeature = strideFeature;
+		m_scale = scale;
+		m_offset = offset;
+		m_numClamped = numClamped;
+	}
+
+	/**
+	 * Copies a 3D feature descriptor, where the features are stored in the 3rd dimension, into a new
+	 * {@link FeatureTensor}.
+	 * 
+	 * @param features the feature descriptor
+	 * @param layout the memory layout
+	 * @return the materialized feature descriptor
+	 */
+	public static <T extends RealType<T>> FeatureTensor create(final RandomAccessibleInterval<T> features,
+			final Layout layout) {
+		return create(features, layout, Precision.FLOAT, null);
+	}
+
+	/**
+	 * Copies a 3D feature descriptor, where the features are stored in the 3rd dimension, into a new
+	 * {@link FeatureTensor} and quantizes its values according to the given precision. The levels of a feature are
+	 * spread over the given range starting at the minimum of the feature in this descriptor. Since split functions
+	 * compare differences of values of the same feature, the offset cancels out and only the range matters. Values
+	 * above the range are clamped.
+	 * 
+	 * @param features the feature descriptor
+	 * @param layout the memory layout
+	 * @param precision the precision of the stored values
+	 * @param ranges the range of the values of each feature, e.g. the ranges seen during learning, if null the ranges
+	 *            of the given descriptor are used
+	 * @return the materialized feature descriptor
+	 */
+	public static <T extends RealType<T>> FeatureTensor create(final RandomAccessibleInterval<T> features,
+			final Layout layout, final Precision precision, final double[] ranges) {
+		if (features.numDimensions() != 3) {
+			throw new IllegalArgumentException("Feature descriptor must be 3D!");
+		}
+		final int width = (int) features.dimension(0);
+		final int height = (int) features.dimension(1);
+		final int numFeatures = (int) features.dimension(2);
+		final long size = features.dimension(0) * features.dimension(1) * features.dimension(2);
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Feature descriptor is too large to be stored in a single array!");
+		}
+		final int strideX, strideY, strideFeature;
+		if (layout == Layout.PIXEL_MAJOR) {
+			strideX = numFeatures;
+			strideY = width * numFeatures;
+			strideFeature = 1;
+		} else {
+			strideX = 1;
+			strideY = width;
+			strideFeature = width * height;
+		}
+		final long[] min = new long[3];
+		features.min(min);
+		if (precision == Precision.FLOAT) {
+			final float[] data = new float[(int) size];
+			// the flat iteration order is x, y, feature
+			final Cursor<T> cursor = Views.flatIterable(features).cursor();
+			for (int f = 0; f < numFeatures; f++) {
+				for (int y = 0; y < height; y++) {
+					for (int x = 0; x < width; x++) {
+						data[x * strideX + y * strideY + f * strideFeature] = cursor.next().getRealFloat();
+					}
+				}
+			}
+			return new FeatureTensor(data, null, null, min, strideX, strideY, strideFeature, null, null, 0);
+		}
+
+		// determine the minimum and maximum of each feature
+		final float[] offset = new float[numFeatures];
+		final float[] max = new float[numFeatures];
+		Cursor<T> cursor = Views.flatIterable(features).cursor();
+		for (int f = 0; f < numFeatures; f++) {
+			offset[f] = Float.POSITIVE_INFINITY;
+			max[f] = Float.NEGATIVE_INFINITY;
+			for (int i = 0; i < width * height; i++) {
+				final float v = cursor.next().getRealFloat();
+				offset[f] = Math.min(offset[f], v);
+				max[f] = Math.max(max[f], v);
+			}
+		}
+		final int maxLevel = precision.getNumLevels() - 1;
+		final float[] scale = new float[numFeatures];
+		for (int f = 0; f < numFeatures; f++) {
+			final double range = ranges != null && f < ranges.length ? ranges[f] : max[f] - offset[f];
+			scale[f] = range > 0 ? (float) (range / maxLevel) : 1;
+		}
+
+		// quantize
+		final short[] shortData = precision == Precision.SHORT ? new short[(int) size] : null;
+		final byte[] byteData = precision == Precision.BYTE ? new byte[(int) size] : null;
+		long numClamped = 0;
+		cursor = Views.flatIterable(features).cursor();
+		for (int f = 0; f < numFeatures; f++) {
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					int q = Math.round((cursor.next().getRealFloat() - offset[f]) / scale[f]);
+					if (q > maxLevel) {
+						q = maxLevel;
+						numClamped++;
+					}
+					final int i = x * strideX + y * strideY + f * strideFeature;
+					if (shortData != null) {
+						shortData[i] = (short) q;
+					} else {
+						byteData[i] = (byte) q;
+					}
+				}
+			}
+		}
+		return new FeatureTensor(null, shortData, byteData, min, strideX, strideY, strideFeature, scale, offset,
+				numClamped);
+	}
+
+	/**
+	 * Returns the index of a position in the underlying array. Positions are given in the coordinates of the
+	 * feature descriptor the tensor was created from.
+	 * 
+	 * @param x position in the 1st dimension
+	 * @param y position in the 2nd dimension
+	 * @param feature position in the 3rd dimension
+	 * @return the index
+	 */
+	public int getIndex(final long x, final long y, final long feature) {
+		return (int) ((x - m_min[0]) * m_strideX + (y - m_min[1]) * m_strideY + (feature - m_min[2]) * m_strideFeature);
+	}
+
+	/**
+	 * Returns the value at an offset relative to a base index, e.g. the index of the min of a patch.
+	 * 
+	 * @param base the base index, see {@link #getIndex(long, long, long)}
+	 * @param dx offset in the 1st dimension
+	 * @param dy offset in the 2nd dimension
+	 * @param feature offset in the 3rd dimension
+	 * @return the value
+	 */
+	public float get(final int base, final int dx, final int dy, final int feature) {
+		final int i = base + getOffset(dx, dy, feature);
+		if (m_data != null) {
+			return m_data[i];
+		}
+		final int f = (int) (feature - m_min[2]);
+		return getQuantized(i) * m_scale[f] + m_offset[f];
+	}
+
+	/**
+	 * @param i index in the underlying array
+	 * @return the quantized value at the index
+	 */
+	public int getQuantized(final int i) {
+		return m_byteData != null ? m_byteData[i] & 0xFF : m_shortData[i] & 0xFFFF;
+	}
+
+	/**
+	 * @return true, if the values are quantized
+	 */
+	public boolean isQuantized() {
+		return m_data == null;
+	}
+
+	/**
+	 * @param feature position in the 3rd dimension
+	 * @return the difference of the values of two neighboring quantization levels of the feature
+	 */
+	public float getScale(final int feature) {
+		return m_scale[(int) (feature - m_min[2])];
+	}
+
+	/**
+	 * @return the number of values which exceeded the range and have been clamped during quantization
+	 */
+	public long getNumClamped() {
+		return m_numClamped;
+	}
+
+	/**
+	 * Returns the distance of a relative position to its base index in the underlying array.
+	 * 
+	 * @param dx offset in the 1st dimension
+	 * @param dy offset in the 2nd dimension
+	 * @param feature offset in the 3rd dimension
+	 * @return the offset in the array
+	 */
+	public int getOffset(final int dx, final int dy, final int feature) {
+		return dx * m_strideX + dy * m_strideY + feature * m_strideFeature;
+	}
+
+	/**
+	 * @return the underlying array, null if the values are quantized
+	 */
+	public float[] getData() {
+		return m_data;
+	}
+
+}
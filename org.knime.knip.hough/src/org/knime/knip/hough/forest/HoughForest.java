@@ -55,6 +55,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.knime.knip.hough.features.FeatureDescriptor;
+import org.knime.knip.hough.forest.flat.FlatForest;
 import org.knime.knip.hough.forest.node.SplitNode;
 
 /**
@@ -69,6 +70,11 @@ public final class HoughForest implements Serializable {
 	private List<SplitNode> m_listTrees;
 	private long[] m_patchSize;
 	private FeatureDescriptor<?> m_featureDescriptor;
+	// range of the values of each feature seen during learning, null for models of older versions
+	private double[] m_featureRanges;
+
+	// flat representation of the trees, created on first use
+	private transient FlatForest m_flatForest;
 
 	/**
 	 * Creates an empty object of this class which needs to be filled by invoking {@link #readExternal(ObjectInput)}.
@@ -87,9 +93,23 @@ public final class HoughForest implements Serializable {
 	 */
 	public HoughForest(final List<SplitNode> listTrees, final long[] patchSize,
 			final FeatureDescriptor<?> featureDescriptor) {
+		this(listTrees, patchSize, featureDescriptor, null);
+	}
+
+	/**
+	 * Creates an object of this class with all relevant parameters.
+	 * 
+	 * @param listTrees list of trees
+	 * @param patchSize size of the patches
+	 * @param featureDescriptor the used {@link FeatureDescriptor}
+	 * @param featureRanges the range of the values of each feature seen during learning
+	 */
+	public HoughForest(final List<SplitNode> listTrees, final long[] patchSize,
+			final FeatureDescriptor<?> featureDescriptor, final double[] featureRanges) {
 		m_listTrees = listTrees;
 		m_patchSize = patchSize;
 		m_featureDescriptor = featureDescriptor;
+		m_featureRanges = featureRanges;
 	}
 
 	/**
@@ -113,6 +133,23 @@ public final class HoughForest implements Serializable {
 		return m_featureDescriptor;
 	}
 
+	/**
+	 * @return the range of the values of each feature seen during learning, null if not available
+	 */
+	public double[] getFeatureRanges() {
+		return m_featureRanges;
+	}
+
+	/**
+	 * @return the array-backed representation of all trees used for prediction
+	 */
+	public synchronized FlatForest getFlatForest() {
+		if (m_flatForest == null) {
+			m_flatForest = new FlatForest(m_listTrees);
+		}
+		return m_flatForest;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -120,6 +157,7 @@ public final class HoughForest implements Serializable {
 		result = prime * result + ((m_featureDescriptor == null) ? 0 : m_featureDescriptor.hashCode());
 		result = prime * result + ((m_listTrees == null) ? 0 : m_listTrees.hashCode());
 		result = prime * result + Arrays.hashCode(m_patchSize);
+		result = prime * result + Arrays.hashCode(m_featureRanges);
 		return result;
 	}
 
@@ -149,6 +187,9 @@ public final class HoughForest implements Serializable {
 		if (!Arrays.equals(m_patchSize, other.m_patchSize)) {
 			return false;
 		}
+		if (!Arrays.equals(m_featureRanges, other.m_featureRanges)) {
+			return false;
+		}
 		return true;
 	}
 
@@ -0,0 +1,124 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.forest.flat;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.knime.knip.hough.forest.HoughForest;
+import org.knime.knip.hough.forest.node.SplitNode;
+
+/**
+ * Immutable, array-backed representation of the trees of a {@link HoughForest} used for prediction.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+public final class FlatForest {
+
+	private final FlatTree[] m_trees;
+
+	// created on first use
+	private final Map<Double, VoteTable[]> m_voteTables = new HashMap<>();
+
+	/**
+	 * Creates the flat representation of the given trees.
+	 *
+	 * @param listTrees list of trees
+	 */
+	public FlatForest(final List<SplitNode> listTrees) {
+		m_trees = new FlatTree[listTrees.size()];
+		for (int i = 0; i < m_trees.length; i++) {
+			m_trees[i] = new FlatTree(listTrees.get(i));
+		}
+	}
+
+	/**
+	 * @param treeIdx index of the tree
+	 * @return the tree
+	 */
+	public FlatTree getTree(final int treeIdx) {
+		return m_trees[treeIdx];
+	}
+
+	/**
+	 * @return the number of trees
+	 */
+	public int getNumTrees() {
+		return m_trees.length;
+	}
+
+	/**
+	 * @return the largest absolute x or y coordinate of the offset vectors of all trees, i.e. the largest distance
+	 *         between a patch and the position it votes for
+	 */
+	public int getMaxLeafOffset() {
+		int max = 0;
+		for (final FlatTree tree : m_trees) {
+			max = Math.max(max, tree.getMaxLeafOffset());
+		}
+		return max;
+	}
+
+	/**
+	 * @param scale scale of the input image compared to the original scale of learning
+	 * @return the {@link VoteTable} of each tree for the given scale, created on first use
+	 */
+	public synchronized VoteTable[] getVoteTables(final double scale) {
+		VoteTable[] voteTables = m_voteTables.get(scale);
+		if (voteTables == null) {
+			voteTables = new VoteTable[m_trees.length];
+			for (int i = 0; i < m_trees.length; i++) {
+				voteTables[i] = new VoteTable(m_trees[i], scale, 1.0 / m_trees.length);
+			}
+			m_voteTables.put(scale, voteTables);
+		}
+		return voteTables;
+	}
+}
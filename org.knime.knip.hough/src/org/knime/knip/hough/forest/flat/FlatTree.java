@@ -0,0 +1,605 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.forest.flat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.knime.knip.hough.features.FeatureTensor;
+import org.knime.knip.hough.forest.node.HeapIndices;
+import org.knime.knip.hough.forest.node.LeafNode;
+import org.knime.knip.hough.forest.node.Node;
+import org.knime.knip.hough.forest.node.SplitNode;
+import org.knime.knip.hough.forest.prediction.PredictionGrid;
+import org.knime.knip.hough.forest.split.AncestorNodePairSplitFunction;
+import org.knime.knip.hough.forest.split.DefaultSplitFunction;
+import org.knime.knip.hough.forest.split.EntangledDefaultSplitFunction;
+import org.knime.knip.hough.forest.split.MAPClassSplitFunction;
+import org.knime.knip.hough.forest.split.NodeDescendantSplitFunction;
+import org.knime.knip.hough.forest.split.OffsetSimilarityNodePairSplitFunction;
+import org.knime.knip.hough.forest.split.SplitFunction;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Immutable, array-backed representation of a Hough tree used for prediction. The nodes are numbered breadth first,
+ * i.e. the root has the index 0, and all node attributes, split parameters and leaf payloads are stored in arrays
+ * indexed by this number. The offset vectors of the leafs are shared with the {@link LeafNode}s.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+public final class FlatTree {
+
+	/** Type of a leaf node. */
+	public static final byte LEAF = 0;
+
+	/** Type of a node holding a {@link DefaultSplitFunction}. */
+	public static final byte DEFAULT = 1;
+
+	/** Type of a node holding an {@link EntangledDefaultSplitFunction}. */
+	public static final byte ENTANGLED_DEFAULT = 2;
+
+	/** Type of a node holding a {@link MAPClassSplitFunction}. */
+	public static final byte MAP_CLASS = 3;
+
+	/** Type of a node holding a {@link NodeDescendantSplitFunction}. */
+	public static final byte NODE_DESCENDANT = 4;
+
+	/** Type of a node holding an {@link AncestorNodePairSplitFunction}. */
+	public static final byte ANCESTOR_NODE_PAIR = 5;
+
+	/** Type of a node holding an {@link OffsetSimilarityNodePairSplitFunction}. */
+	public static final byte OFFSET_SIMILARITY = 6;
+
+	private final int m_numNodes;
+
+	// tree structure
+	private final byte[] m_type;
+	private final int[] m_left;
+	private final int[] m_right;
+	private final int[] m_parent;
+	private final int[] m_depth;
+	private final int[] m_nodeIdx;
+	// true, if the node indices are numbered like a heap and allow structural queries by HeapIndices
+	private final boolean m_heapIndices;
+
+	// node attributes used by the entangled split functions
+	private final double[] m_prob0;
+	private final double[] m_prob1;
+	private final double[] m_offsetMean;
+
+	// split parameters
+	private final int[] m_indices;
+	private final int[] m_offsets;
+	private final int[] m_stride;
+	private final int[] m_param;
+	private final double[] m_threshold;
+	// threshold of the squared distance of the offset means, see OffsetSimilarityNodePairSplitFunction
+	private final double[] m_squaredDistanceThreshold;
+
+	// leaf payload, the offsets of a leaf are the array of its LeafNode and null for split nodes
+	private final int[][] m_leafOffsets;
+	private final double[] m_leafWeight;
+
+	/**
+	 * Creates a flat representation of the tree with the given root.
+	 *
+	 * @param root the root of the tree
+	 */
+	public FlatTree(final Node root) {
+		// number the nodes breadth first
+		final List<Node> nodes = new ArrayList<>();
+		final List<Integer> parents = new ArrayList<>();
+		nodes.add(root);
+		parents.add(-1);
+		for (int i = 0; i < nodes.size(); i++) {
+			final Node node = nodes.get(i);
+			if (node instanceof SplitNode) {
+				final SplitNode splitNode = (SplitNode) node;
+				if (splitNode.getLeftChild() == null || splitNode.getRightChild() == null) {
+					throw new IllegalStateException("Split node " + node.getNodeIdx() + " has no children.");
+				}
+				nodes.add(splitNode.getLeftChild());
+				parents.add(i);
+				nodes.add(splitNode.getRightChild());
+				parents.add(i);
+			} else if (!(node instanceof LeafNode)) {
+				throw new IllegalArgumentException("Unexpected node type: " + node.getClass());
+			}
+		}
+
+		m_numNodes = nodes.size();
+		m_type = new byte[m_numNodes];
+		m_left = new int[m_numNodes];
+		m_right = new int[m_numNodes];
+		m_parent = new int[m_numNodes];
+		m_depth = new int[m_numNodes];
+		m_nodeIdx = new int[m_numNodes];
+		m_prob0 = new double[m_numNodes];
+		m_prob1 = new double[m_numNodes];
+		m_offsetMean = new double[2 * m_numNodes];
+		m_indices = new int[6 * m_numNodes];
+		m_offsets = new int[4 * m_numNodes];
+		m_stride = new int[2 * m_numNodes];
+		m_param = new int[m_numNodes];
+		m_threshold = new double[m_numNodes];
+		m_squaredDistanceThreshold = new double[m_numNodes];
+		m_leafOffsets = new int[m_numNodes][];
+		m_leafWeight = new double[m_numNodes];
+
+		int child = 1;
+		for (int i = 0; i < m_numNodes; i++) {
+			final Node node = nodes.get(i);
+			m_parent[i] = parents.get(i);
+			m_depth[i] = node.getDepth();
+			m_nodeIdx[i] = node.getNodeIdx();
+			final double[] probabilities = node.getProbabilities();
+			if (probabilities != null) {
+				m_prob0[i] = probabilities[0];
+				m_prob1[i] = probabilities[1];
+			}
+			final double[] offsetMean = node.getOffsetMean();
+			if (offsetMean != null) {
+				m_offsetMean[2 * i] = offsetMean[0];
+				m_offsetMean[2 * i + 1] = offsetMean[1];
+			}
+			if (node instanceof SplitNode) {
+				m_left[i] = child++;
+				m_right[i] = child++;
+				setSplitFunction(i, ((SplitNode) node).getSplitFunction());
+			} else {
+				m_type[i] = LEAF;
+				m_left[i] = -1;
+				m_right[i] = -1;
+				m_leafOffsets[i] = ((LeafNode) node).getOffsets();
+				m_leafWeight[i] = ((LeafNode) node).getVoteWeight();
+			}
+		}
+		m_heapIndices = hasHeapIndices();
+	}
+
+	private boolean hasHeapIndices() {
+		if (m_nodeIdx[0] != 0) {
+			return false;
+		}
+		for (int i = 0; i < m_numNodes; i++) {
+			if (m_depth[i] > HeapIndices.MAX_DEPTH || m_depth[i] != HeapIndices.getDepth(m_nodeIdx[i])) {
+				return false;
+			}
+			if (m_type[i] != LEAF && (m_nodeIdx[m_left[i]] != 2 * m_nodeIdx[i] + 1
+					|| m_nodeIdx[m_right[i]] != 2 * m_nodeIdx[i] + 2)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void setSplitFunction(final int i, final SplitFunction splitFunction) {
+		if (splitFunction instanceof DefaultSplitFunction) {
+			final DefaultSplitFunction sf = (DefaultSplitFunction) splitFunction;
+			m_type[i] = DEFAULT;
+			setIndices(i, sf.getIndices());
+			m_threshold[i] = sf.getThreshold();
+		} else if (splitFunction instanceof EntangledDefaultSplitFunction) {
+			final EntangledDefaultSplitFunction sf = (EntangledDefaultSplitFunction) splitFunction;
+			m_type[i] = ENTANGLED_DEFAULT;
+			setIndices(i, sf.getIndices());
+			setOffsets(i, sf.getOffset(), null, sf.getStride());
+			m_threshold[i] = sf.getThreshold();
+		} else if (splitFunction instanceof MAPClassSplitFunction) {
+			final MAPClassSplitFunction sf = (MAPClassSplitFunction) splitFunction;
+			m_type[i] = MAP_CLASS;
+			setOffsets(i, sf.getOffset(), null, sf.getStride());
+			m_param[i] = sf.getClazz();
+		} else if (splitFunction instanceof NodeDescendantSplitFunction) {
+			final NodeDescendantSplitFunction sf = (NodeDescendantSplitFunction) splitFunction;
+			m_type[i] = NODE_DESCENDANT;
+			setOffsets(i, sf.getOffset(), null, sf.getStride());
+			m_param[i] = sf.getNodeIdx();
+		} else if (splitFunction instanceof AncestorNodePairSplitFunction) {
+			final AncestorNodePairSplitFunction sf = (AncestorNodePairSplitFunction) splitFunction;
+			m_type[i] = ANCESTOR_NODE_PAIR;
+			setOffsets(i, sf.getOffset1(), sf.getOffset2(), sf.getStride());
+			m_param[i] = sf.getThreshold();
+		} else if (splitFunction instanceof OffsetSimilarityNodePairSplitFunction) {
+			final OffsetSimilarityNodePairSplitFunction sf = (OffsetSimilarityNodePairSplitFunction) splitFunction;
+			m_type[i] = OFFSET_SIMILARITY;
+			setOffsets(i, sf.getOffset1(), sf.getOffset2(), sf.getStride());
+			m_threshold[i] = sf.getThreshold();
+			m_squaredDistanceThreshold[i] = OffsetSimilarityNodePairSplitFunction
+					.getSquaredDistanceThreshold(sf.getThreshold(), sf.getSigma());
+		} else {
+			throw new IllegalArgumentException("Unexpected type of split function: " + splitFunction.getClass());
+		}
+	}
+
+	private void setIndices(final int i, final int[][] indices) {
+		System.arraycopy(indices[0], 0, m_indices, 6 * i, 3);
+		System.arraycopy(indices[1], 0, m_indices, 6 * i + 3, 3);
+	}
+
+	private void setOffsets(final int i, final int[] offset1, final int[] offset2, final int[] stride) {
+		m_offsets[4 * i] = offset1[0];
+		m_offsets[4 * i + 1] = offset1[1];
+		if (offset2 != null) {
+			m_offsets[4 * i + 2] = offset2[0];
+			m_offsets[4 * i + 3] = offset2[1];
+		}
+		m_stride[2 * i] = stride[0];
+		m_stride[2 * i + 1] = stride[1];
+	}
+
+	/**
+	 * Applies the split function of a split node to a patch and returns the index of the child the patch is passed
+	 * to.
+	 *
+	 * @param node index of the split node
+	 * @param grid the grid of patches
+	 * @param cell index of the patch to apply the split function to
+	 * @param raFeatures {@link RandomAccess} of the feature image the patches are part of, not used if the grid
+	 *            provides a {@link FeatureTensor}
+	 * @param nodes the current nodes of all patches of the grid
+	 * @param probeOffsets the offsets of the probes in the grid, see {@link #getProbeOffsets(int[])}
+	 * @return index of the left or right child
+	 */
+	public <T extends RealType<T>> int getChild(final int node, final PredictionGrid<T> grid, final int cell,
+			final RandomAccess<T> raFeatures, final NodeMaps nodes, final int[] probeOffsets) {
+		return getChild(node, grid, cell, raFeatures, nodes, probeOffsets, null);
+	}
+
+	/**
+	 * Same as {@link #getChild(int, PredictionGrid, int, RandomAccess, NodeMaps, int[])}, but feature tests are
+	 * evaluated with offsets into the {@link FeatureTensor} of the grid which were computed beforehand.
+	 *
+	 * @param node index of the split node
+	 * @param grid the grid of patches
+	 * @param cell index of the patch to apply the split function to
+	 * @param raFeatures {@link RandomAccess} of the feature image the patches are part of, not used if the grid
+	 *            provides a {@link FeatureTensor}
+	 * @param nodes the current nodes of all patches of the grid
+	 * @param probeOffsets the offsets of the probes in the grid, see {@link #getProbeOffsets(int[])}
+	 * @param featureOffsets the offsets of the features, see {@link #getFeatureOffsets(FeatureTensor)}, if null the
+	 *            features are read as in {@link #getChild(int, PredictionGrid, int, RandomAccess, NodeMaps, int[])}
+	 * @return index of the left or right child
+	 */
+	public <T extends RealType<T>> int getChild(final int node, final PredictionGrid<T> grid, final int cell,
+			final RandomAccess<T> raFeatures, final NodeMaps nodes, final int[] probeOffsets,
+			final int[] featureOffsets) {
+		return isLeft(node, grid, cell, raFeatures, nodes, probeOffsets, featureOffsets) ? m_left[node]
+				: m_right[node];
+	}
+
+	private <T extends RealType<T>> boolean isLeft(final int node, final PredictionGrid<T> grid, final int cell,
+			final RandomAccess<T> raFeatures, final NodeMaps nodes, final int[] probeOffsets,
+			final int[] featureOffsets) {
+		final int h = grid.getHeight();
+		final int w = grid.getWidth();
+		final int x = cell / h;
+		final int y = cell % h;
+		switch (m_type[node]) {
+		case DEFAULT:
+			if (featureOffsets != null) {
+				return isLeft(node, grid, cell, featureOffsets);
+			}
+			return getValue(grid, cell, raFeatures, 6 * node)
+					- getValue(grid, cell, raFeatures, 6 * node + 3) < m_threshold[node];
+		case ENTANGLED_DEFAULT: {
+			final int px = x + probeOffsets[4 * node];
+			final int py = y + probeOffsets[4 * node + 1];
+			if (!isInGrid(px, py, w, h)) {
+				return false;
+			}
+			final int probe = px * h + py;
+			if (featureOffsets != null) {
+				return isLeft(node, grid, probe, featureOffsets);
+			}
+			return getValue(grid, probe, raFeatures, 6 * node)
+					- getValue(grid, probe, raFeatures, 6 * node + 3) < m_threshold[node];
+		}
+		case MAP_CLASS: {
+			final int px = x + probeOffsets[4 * node];
+			final int py = y + probeOffsets[4 * node + 1];
+			int clazz = 0;
+			if (isInGrid(px, py, w, h)) {
+				clazz = nodes.getMapClass(px * h + py);
+			}
+			return m_param[node] == clazz;
+		}
+		case NODE_DESCENDANT: {
+			final int px = x + probeOffsets[4 * node];
+			final int py = y + probeOffsets[4 * node + 1];
+			if (isInGrid(px, py, w, h)) {
+				int probe = nodes.getNode(px * h + py);
+				if (m_heapIndices) {
+					return HeapIndices.isDescendant(m_nodeIdx[probe], m_param[node]);
+				}
+				// skip the overflowed indices of ancestors deeper than HeapIndices.MAX_DEPTH
+				while (m_parent[probe] >= 0) {
+					probe = m_parent[probe];
+					if (m_depth[probe] <= HeapIndices.MAX_DEPTH && m_nodeIdx[probe] == m_param[node]) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+		case ANCESTOR_NODE_PAIR: {
+			final int px1 = x + probeOffsets[4 * node];
+			final int py1 = y + probeOffsets[4 * node + 1];
+			final int px2 = x + probeOffsets[4 * node + 2];
+			final int py2 = y + probeOffsets[4 * node + 3];
+			if (!isInGrid(px1, py1, w, h) || !isInGrid(px2, py2, w, h)) {
+				return false;
+			}
+			int probe1 = nodes.getNode(px1 * h + py1);
+			int probe2 = nodes.getNode(px2 * h + py2);
+			if (m_heapIndices) {
+				return AncestorNodePairSplitFunction.isLeft(m_nodeIdx[probe1], m_nodeIdx[probe2], m_param[node]);
+			}
+			// take both nodes onto the same depth level
+			int counter = 0;
+			int d = nodes.getDepth(px1 * h + py1) - nodes.getDepth(px2 * h + py2);
+			if (d > 0) {
+				counter = d;
+				for (; d != 0; d--) {
+					probe1 = m_parent[probe1];
+				}
+			} else if (d < 0) {
+				counter = -d;
+				for (; d != 0; d++) {
+					probe2 = m_parent[probe2];
+				}
+			}
+			// go upwards until both nodes meet
+			while (m_parent[probe1] >= 0) {
+				probe1 = m_parent[probe1];
+				probe2 = m_parent[probe2];
+				if (probe1 == probe2) {
+					return true;
+				}
+				counter++;
+				if (counter > m_param[node]) {
+					return false;
+				}
+			}
+			return false;
+		}
+		case OFFSET_SIMILARITY: {
+			final int px1 = x + probeOffsets[4 * node];
+			final int py1 = y + probeOffsets[4 * node + 1];
+			final int px2 = x + probeOffsets[4 * node + 2];
+			final int py2 = y + probeOffsets[4 * node + 3];
+			if (!isInGrid(px1, py1, w, h) || !isInGrid(px2, py2, w, h)) {
+				return false;
+			}
+			final int probe1 = px1 * h + py1;
+			final int probe2 = px2 * h + py2;
+			if (nodes.isBackground(probe1) || nodes.isBackground(probe2)) {
+				return true;
+			}
+			final double diffX = nodes.getOffsetMean(probe1, 0) - nodes.getOffsetMean(probe2, 0);
+			final double diffY = nodes.getOffsetMean(probe1, 1) - nodes.getOffsetMean(probe2, 1);
+			return diffX * diffX + diffY * diffY > m_squaredDistanceThreshold[node];
+		}
+		default:
+			throw new IllegalArgumentException("Node " + node + " is not a split node.");
+		}
+	}
+
+	// evaluates a feature test with the precomputed offsets into the tensor
+	private boolean isLeft(final int node, final PredictionGrid<?> grid, final int cell, final int[] featureOffsets) {
+		final FeatureTensor features = grid.getFeatureTensor();
+		final int base = grid.getFeatureIndex(cell);
+		if (features.isQuantized()) {
+			return features.getQuantized(base + featureOffsets[3 * node])
+					- features.getQuantized(base + featureOffsets[3 * node + 1]) < featureOffsets[3 * node + 2];
+		}
+		final float[] data = features.getData();
+		return data[base + featureOffsets[3 * node]] - data[base + featureOffsets[3 * node + 1]] < m_threshold[node];
+	}
+
+	private <T extends RealType<T>> float getValue(final PredictionGrid<?> grid, final int cell,
+			final RandomAccess<T> raPatch, final int i) {
+		final FeatureTensor features = grid.getFeatureTensor();
+		if (features != null) {
+			return features.get(grid.getFeatureIndex(cell), m_indices[i], m_indices[i + 1], m_indices[i + 2]);
+		}
+		raPatch.setPosition(grid.getMinX(cell) + m_indices[i], 0);
+		raPatch.setPosition(grid.getMinY(cell) + m_indices[i + 1], 1);
+		raPatch.setPosition(m_indices[i + 2], 2);
+		return raPatch.get().getRealFloat();
+	}
+
+	/**
+	 * Computes the offsets of the probes of all split nodes for a grid with the given stride. The offsets of the probes
+	 * of node i are stored at 4i to 4i+3 in the order x1, y1, x2, y2.
+	 *
+	 * @param stride the stride of the grid, if null the stride used for learning is assumed
+	 * @return the offsets of the probes
+	 */
+	public int[] getProbeOffsets(final int[] stride) {
+		final int[] probeOffsets = new int[m_offsets.length];
+		for (int i = 0; i < m_offsets.length; i++) {
+			final int d = i & 1;
+			if (stride == null) {
+				probeOffsets[i] = m_offsets[i];
+			} else {
+				// adapt offset to be image size relative, not grid size relative
+				probeOffsets[i] = (int) Math.round(((double) m_offsets[i] * m_stride[2 * (i / 4) + d]) / stride[d]);
+			}
+		}
+		return probeOffsets;
+	}
+
+	/**
+	 * Computes the offsets of the features tested by the split nodes relative to the index of the min of a patch in a
+	 * {@link FeatureTensor}. The offsets of the two features of node i are stored at 3i and 3i+1. If the tensor is
+	 * quantized, the threshold of node i rescaled to quantization levels is stored at 3i+2. Since the offsets depend
+	 * on the layout and size of the tensor, they need to be computed for every tensor.
+	 *
+	 * @param features the tensor the patches are part of
+	 * @return the offsets of the features or null, if the tensor is quantized and a node compares two features with
+	 *         different scales
+	 */
+	public int[] getFeatureOffsets(final FeatureTensor features) {
+		final int[] featureOffsets = new int[3 * m_type.length];
+		for (int i = 0; i < m_type.length; i++) {
+			if (m_type[i] == DEFAULT || m_type[i] == ENTANGLED_DEFAULT) {
+				featureOffsets[3 * i] = features.getOffset(m_indices[6 * i], m_indices[6 * i + 1],
+						m_indices[6 * i + 2]);
+				featureOffsets[3 * i + 1] = features.getOffset(m_indices[6 * i + 3], m_indices[6 * i + 4],
+						m_indices[6 * i + 5]);
+				if (features.isQuantized()) {
+					final float scale = features.getScale(m_indices[6 * i + 2]);
+					if (scale != features.getScale(m_indices[6 * i + 5])) {
+						return null;
+					}
+					// an integer difference d satisfies d < t if and only if d < ceil(t)
+					featureOffsets[3 * i + 2] = (int) Math.max(Integer.MIN_VALUE,
+							Math.min(Integer.MAX_VALUE, Math.ceil(m_threshold[i] / scale)));
+				}
+			}
+		}
+		return featureOffsets;
+	}
+
+	private static boolean isInGrid(final int x, final int y, final int w, final int h) {
+		return x >= 0 && y >= 0 && x < w && y < h;
+	}
+
+	/**
+	 * @return the number of nodes
+	 */
+	public int getNumNodes() {
+		return m_numNodes;
+	}
+
+	/**
+	 * @param node index of the node
+	 * @return true, if the node is a leaf
+	 */
+	public boolean isLeaf(final int node) {
+		return m_type[node] == LEAF;
+	}
+
+	/**
+	 * @param node index of the node
+	 * @return the type of the node, see the constants of this class
+	 */
+	public byte getType(final int node) {
+		return m_type[node];
+	}
+
+	/**
+	 * @param node index of the node
+	 * @return the depth of the node
+	 */
+	public int getDepth(final int node) {
+		return m_depth[node];
+	}
+
+	/**
+	 * @param node index of the node
+	 * @return the node index which has been assigned during learning
+	 */
+	public int getNodeIdx(final int node) {
+		return m_nodeIdx[node];
+	}
+
+	/**
+	 * @param node index of the node
+	 * @param idx index of the class
+	 * @return the class probability
+	 */
+	public double getProbability(final int node, final int idx) {
+		return idx == 0 ? m_prob0[node] : m_prob1[node];
+	}
+
+	/**
+	 * @param node index of the node
+	 * @param d the dimension
+	 * @return the mean of the offsets of the node in the dimension
+	 */
+	public double getOffsetMean(final int node, final int d) {
+		return m_offsetMean[2 * node + d];
+	}
+
+	/**
+	 * @param node index of the leaf
+	 * @return the offset vectors of the leaf, the x and y coordinate of offset k are stored at 2k and 2k+1; the array is
+	 *         the one of the {@link LeafNode} and must not be modified
+	 */
+	public int[] getLeafOffsets(final int node) {
+		return m_leafOffsets[node];
+	}
+
+	/**
+	 * @return the largest absolute x or y coordinate of the offset vectors of all leafs
+	 */
+	public int getMaxLeafOffset() {
+		int max = 0;
+		for (final int[] offsets : m_leafOffsets) {
+			if (offsets != null) {
+				for (final int offset : offsets) {
+					max = Math.max(max, Math.abs(offset));
+				}
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * @param node index of the node
+	 * @return the weight of a vote of the leaf, i.e. the probability of class 1 divided by the number of its elements
+	 */
+	public double getLeafWeight(final int node) {
+		return m_leafWeight[node];
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.forest.flat;
+
+/**
+ * Holds the nodes of a {@link FlatTree} the patches of a grid have reached during a level by level prediction, and
+ * maps of the node attributes read by the entangled split functions. All maps use the index <i>x * gridHeight + y</i>
+ * of the patch. Since the nodes of a level are only set after all split decisions of the level have been made, the
+ * maps are updated together with the nodes and a test reads the attributes at the position of its probe instead of
+ * looking up the node. If the tree does not contain split functions reading node attributes, only the nodes are
+ * stored.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+public final class NodeMaps {
+
+	private final FlatTree m_tree;
+	private final int[] m_nodeIds;
+	// the depth of the reached node
+	private final int[] m_depths;
+	// the class with the higher probability in the reached node
+	private final byte[] m_mapClasses;
+	// whether the probability of class 0 is above 0.5 in the reached node
+	private final boolean[] m_background;
+	// the interleaved x and y of the offset mean of the reached node
+	private final float[] m_offsetMeans;
+
+	/**
+	 * Creates the maps with all patches at the root of the tree.
+	 *
+	 * @param tree the tree
+	 * @param numCells the number of patches of the grid
+	 */
+	public NodeMaps(final FlatTree tree, final int numCells) {
+		m_tree = tree;
+		m_nodeIds = new int[numCells];
+		boolean readsAttributes = false;
+		for (int i = 0; i < tree.getNumNodes(); i++) {
+			final byte type = tree.getType(i);
+			readsAttributes |= type == FlatTree.MAP_CLASS || type == FlatTree.ANCESTOR_NODE_PAIR
+					|| type == FlatTree.OFFSET_SIMILARITY;
+		}
+		if (readsAttributes) {
+			m_depths = new int[numCells];
+			m_mapClasses = new byte[numCells];
+			m_background = new boolean[numCells];
+			m_offsetMeans = new float[2 * numCells];
+			for (int c = 0; c < numCells; c++) {
+				setNode(c, 0);
+			}
+		} else {
+			m_depths = null;
+			m_mapClasses = null;
+			m_background = null;
+			m_offsetMeans = null;
+		}
+	}
+
+	/**
+	 * Sets the node reached by a patch and updates the maps.
+	 *
+	 * @param cell index of the patch
+	 * @param node index of the node in the tree
+	 */
+	public void setNode(final int cell, final int node) {
+		m_nodeIds[cell] = node;
+		if (m_depths != null) {
+			m_depths[cell] = m_tree.getDepth(node);
+			m_mapClasses[cell] = (byte) (m_tree.getProbability(node, 0) > m_tree.getProbability(node, 1) ? 0 : 1);
+			m_background[cell] = m_tree.getProbability(node, 0) > 0.5;
+			m_offsetMeans[2 * cell] = (float) m_tree.getOffsetMean(node, 0);
+			m_offsetMeans[2 * cell + 1] = (float) m_tree.getOffsetMean(node, 1);
+		}
+	}
+
+	/**
+	 * @return the nodes reached by the patches, must not be modified
+	 */
+	public int[] getNodeIds() {
+		return m_nodeIds;
+	}
+
+	int getNode(final int cell) {
+		return m_nodeIds[cell];
+	}
+
+	int getDepth(final int cell) {
+		return m_depths[cell];
+	}
+
+	int getMapClass(final int cell) {
+		return m_mapClasses[cell];
+	}
+
+	boolean isBackground(final int cell) {
+		return m_background[cell];
+	}
+
+	double getOffsetMean(final int cell, final int d) {
+		return m_offsetMeans[2 * cell + d];
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.forest.flat;
+
+import org.knime.knip.hough.forest.prediction.VoteAccumulator;
+
+/**
+ * The votes of the leafs of a {@link FlatTree} precompiled for one scale. Each leaf stores the weight of its votes,
+ * which already includes the scale and the number of trees, and the bounding box of its offset vectors, so that the
+ * votes of a patch can be stamped into the votes without any check if the patch is not close to the border.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+public final class VoteTable {
+
+	private final FlatTree m_tree;
+
+	// weight of a vote of each node
+	private final double[] m_weight;
+
+	// min x, max x, min y and max y of the offset vectors of node i are stored at 4i, ..., 4i+3
+	private final int[] m_bounds;
+
+	/**
+	 * Creates the vote table of a tree.
+	 *
+	 * @param tree the tree
+	 * @param scale scale of the input image compared to the original scale of learning
+	 * @param numTreesWeight weight of a single tree
+	 */
+	public VoteTable(final FlatTree tree, final double scale, final double numTreesWeight) {
+		m_tree = tree;
+		m_weight = new double[tree.getNumNodes()];
+		m_bounds = new int[4 * tree.getNumNodes()];
+		for (int node = 0; node < tree.getNumNodes(); node++) {
+			if (!tree.isLeaf(node)) {
+				continue;
+			}
+			m_weight[node] = numTreesWeight * ((1.0 / scale) * tree.getLeafWeight(node)); // TODO check if scale
+																							// weighting is correct
+			final int[] offsets = tree.getLeafOffsets(node);
+			int minX = 0;
+			int maxX = 0;
+			int minY = 0;
+			int maxY = 0;
+			for (int k = 0; k < offsets.length; k += 2) {
+				minX = Math.min(minX, offsets[k]);
+				maxX = Math.max(maxX, offsets[k]);
+				minY = Math.min(minY, offsets[k + 1]);
+				maxY = Math.max(maxY, offsets[k + 1]);
+			}
+			m_bounds[4 * node] = minX;
+			m_bounds[4 * node + 1] = maxX;
+			m_bounds[4 * node + 2] = minY;
+			m_bounds[4 * node + 3] = maxY;
+		}
+	}
+
+	/**
+	 * Maps the coordinates of the scaled image to the coordinates of the votes.
+	 *
+	 * @param size size of the scaled image in one dimension
+	 * @param scale scale of the input image compared to the original scale of learning
+	 * @return the coordinate of the votes for each coordinate of the scaled image
+	 */
+	public static int[] createPositions(final int size, final double scale) {
+		final int[] positions = new int[size];
+		for (int i = 0; i < size; i++) {
+			positions[i] = (int) (i / scale);
+		}
+		return positions;
+	}
+
+	/**
+	 * Adds the votes of a leaf for a patch. Votes outside of the scaled image are dropped.
+	 *
+	 * @param node index of the leaf
+	 * @param x x coordinate of the center of the patch in the scaled image
+	 * @param y y coordinate of the center of the patch in the scaled image
+	 * @param votes the votes
+	 * @param positionsX x coordinates of the votes, see {@link #createPositions(int, double)}
+	 * @param positionsY y coordinates of the votes, see {@link #createPositions(int, double)}
+	 */
+	public void stamp(final int node, final int x, final int y, final VoteAccumulator votes, final int[] positionsX,
+			final int[] positionsY) {
+		final int[] offsets = m_tree.getLeafOffsets(node);
+		final double weight = m_weight[node];
+		if (x + m_bounds[4 * node] >= 0 && x + m_bounds[4 * node + 1] < positionsX.length
+				&& y + m_bounds[4 * node + 2] >= 0 && y + m_bounds[4 * node + 3] < positionsY.length) {
+			for (int k = 0; k < offsets.length; k += 2) {
+				votes.add(positionsX[x + offsets[k]], positionsY[y + offsets[k + 1]], weight);
+			}
+		} else {
+			for (int k = 0; k < offsets.length; k += 2) {
+				final int posX = x + offsets[k];
+				final int posY = y + offsets[k + 1];
+				if (posX >= 0 && posX < positionsX.length && posY >= 0 && posY < positionsY.length) {
+					votes.add(positionsX[posX], positionsY[posY], weight);
+				}
+			}
+		}
+	}
+}
@@ -63,6 +63,7 @@ public final class FrontierNode<T extends RealType<T>> extends Node {
 	private final SampleTrainingObject<T> m_allTrainingObjects;
 	private final long m_seed;
 	private final boolean m_isLeftChild;
+	private int m_nodeId = -1;
 
 	/**
 	 * Creates an object of this class with all relevant parameters.
@@ -111,4 +112,18 @@ public final class FrontierNode<T extends RealType<T>> extends Node {
 		return m_allTrainingObjects;
 	}
 
+	/**
+	 * @return the id of the node in the node table of its tree, -1 if not set
+	 */
+	public int getNodeId() {
+		return m_nodeId;
+	}
+
+	/**
+	 * @param nodeId the id of the node in the node table of its tree
+	 */
+	public void setNodeId(final int nodeId) {
+		m_nodeId = nodeId;
+	}
+
 }
@@ -0,0 +1,108 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.forest.node;
+
+/**
+ * Answers structural queries on the node indices assigned during learning without walking the tree. The nodes are
+ * numbered like a binary heap, i.e. the root has the index 0 and the children of node <i>i</i> have the indices
+ * <i>2i + 1</i> and <i>2i + 2</i>. Hence the path from the root to a node is given by the binary representation of
+ * its index plus one, and ancestors are found by shifting it. The indices of nodes deeper than {@link #MAX_DEPTH}
+ * overflow, for such nodes the parents need to be followed instead.
+ * 
+ * @author Simon Schmid, University of Konstanz
+ */
+public final class HeapIndices {
+
+	/** The maximum depth of a node whose index is valid. */
+	public static final int MAX_DEPTH = 30;
+
+	private HeapIndices() {
+		// utility class
+	}
+
+	/**
+	 * @param nodeIdx the index of a node
+	 * @return the depth of the node
+	 */
+	public static int getDepth(final int nodeIdx) {
+		return 63 - Long.numberOfLeadingZeros(nodeIdx + 1L);
+	}
+
+	/**
+	 * @param nodeIdx the index of a node
+	 * @param ancestorIdx the index of another node
+	 * @return true, if the other node is a proper ancestor of the node
+	 */
+	public static boolean isDescendant(final int nodeIdx, final int ancestorIdx) {
+		if (ancestorIdx < 0) {
+			return false;
+		}
+		final int levels = getDepth(nodeIdx) - getDepth(ancestorIdx);
+		return levels > 0 && ((nodeIdx + 1L) >>> levels) == ancestorIdx + 1L;
+	}
+
+	/**
+	 * @param nodeIdx the index of a node
+	 * @param levels the number of levels to go up, not greater than the depth of the node
+	 * @return the index of the ancestor of the node the given number of levels above it
+	 */
+	public static int getAncestor(final int nodeIdx, final int levels) {
+		return (int) (((nodeIdx + 1L) >>> levels) - 1);
+	}
+
+	/**
+	 * @param nodeIdx1 the index of a node
+	 * @param nodeIdx2 the index of another node with the same depth
+	 * @return the number of levels both nodes need to go up until they reach the same node, 0 if they are the same
+	 */
+	public static int getLevelsToCommonAncestor(final int nodeIdx1, final int nodeIdx2) {
+		// the paths from the root are the same up to the highest differing bit
+		return 64 - Long.numberOfLeadingZeros((nodeIdx1 + 1L) ^ (nodeIdx2 + 1L));
+	}
+}
@@ -48,6 +48,11 @@
  */
 package org.knime.knip.hough.forest.node;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+import java.util.List;
+
 import org.knime.knip.hough.forest.training.SampleTrainingObject;
 
 /**
@@ -62,6 +67,10 @@ public class LeafNode extends Node {
 	private final int m_numElementsOfClazz0;
 	private final int m_numElementsOfClazz1;
 
+	/** the offset vectors to vote for, x and y interleaved */
+	private int[] m_offsets;
+	private double m_voteWeight;
+
 	/**
 	 * Creates an object of this class with all relevant parameters.
 	 * 
@@ -74,6 +83,8 @@ public class LeafNode extends Node {
 		super(depth, nodeIdx, classProbabilities, sample.getOffsets(), parent);
 		m_numElementsOfClazz0 = sample.getNumberElementsOfClazz0();
 		m_numElementsOfClazz1 = sample.getNumberElementsOfClazz1();
+		m_offsets = interleave(sample.getOffsets());
+		m_voteWeight = voteWeight();
 	}
 
 	/**
@@ -83,6 +94,60 @@ public class LeafNode extends Node {
 		super(0, 0, null, null, null);
 		m_numElementsOfClazz0 = 0;
 		m_numElementsOfClazz1 = 0;
+		m_offsets = new int[0];
+	}
+
+	private static int[] interleave(final List<int[]> offsets) {
+		if (offsets == null) {
+			return new int[0];
+		}
+		int count = 0;
+		for (final int[] offset : offsets) {
+			if (offset.length > 0) {
+				count++;
+			}
+		}
+		final int[] interleaved = new int[2 * count];
+		int k = 0;
+		for (final int[] offset : offsets) {
+			if (offset.length > 0) {
+				interleaved[k++] = offset[0];
+				interleaved[k++] = offset[1];
+			}
+		}
+		return interleaved;
+	}
+
+	private double voteWeight() {
+		if (getProbabilities() == null || m_numElementsOfClazz1 == 0) {
+			return 0;
+		}
+		return getProbability(1) / m_numElementsOfClazz1;
+	}
+
+	private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (m_offsets == null) {
+			// model saved before the offsets have been stored interleaved
+			m_offsets = interleave(takeLegacyOffsets());
+			m_voteWeight = voteWeight();
+		}
+	}
+
+	/**
+	 * @return the offset vectors to vote for, the x and y coordinate of the i-th vector are at 2*i and 2*i+1; the
+	 *         array must not be modified
+	 */
+	public int[] getOffsets() {
+		return m_offsets;
+	}
+
+	/**
+	 * @return the weight of a single vote of this leaf, i.e. the probability of class 1 divided by the number of
+	 *         elements of class 1
+	 */
+	public double getVoteWeight() {
+		return m_voteWeight;
 	}
 
 	public int getNumElementsOfClazz0() {
@@ -99,6 +164,7 @@ public class LeafNode extends Node {
 		int result = super.hashCode();
 		result = prime * result + m_numElementsOfClazz0;
 		result = prime * result + m_numElementsOfClazz1;
+		result = prime * result + Arrays.hashCode(m_offsets);
 		return result;
 	}
 
@@ -115,6 +181,8 @@ public class LeafNode extends Node {
 			return false;
 		if (m_numElementsOfClazz1 != other.m_numElementsOfClazz1)
 			return false;
+		if (!Arrays.equals(m_offsets, other.m_offsets))
+			return false;
 		return true;
 	}
 
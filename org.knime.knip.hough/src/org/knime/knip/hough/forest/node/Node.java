@@ -48,6 +48,8 @@
  */
 package org.knime.knip.hough.forest.node;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
@@ -64,17 +66,18 @@ public abstract class Node implements Serializable {
 	private int m_depth;
 	private int m_nodeIdx;
 	private double[] m_probabilities;
-	private List<int[]> m_offsets;
 	private SplitNode m_parent;
 
 	private double[] m_offsetMean;
 
+	/** offset vectors of a leaf of a model saved before the nodes kept only their mean, converted when reading */
+	private transient List<int[]> m_legacyOffsets;
+
 	public Node(final int depth, final int nodeIdx, final double[] classProbabilities, final List<int[]> offsets,
 			final SplitNode parent) {
 		m_depth = depth;
 		m_nodeIdx = nodeIdx;
 		m_probabilities = classProbabilities;
-		m_offsets = offsets;
 		m_parent = parent;
 		m_offsetMean = offsetMean(offsets);
 	}
@@ -85,8 +88,30 @@ public abstract class Node implements Serializable {
 	protected Node() {
 	}
 
-	public List<int[]> getOffsetVectors() {
-		return m_offsets;
+	/**
+	 * Reads the fields of this node. Models saved before the nodes kept only the mean of their offset vectors contain
+	 * the whole list. A {@link LeafNode} takes it via {@link #takeLegacyOffsets()}, any other node drops it right away.
+	 */
+	@SuppressWarnings("unchecked")
+	private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+		final ObjectInputStream.GetField fields = in.readFields();
+		m_depth = fields.get("m_depth", 0);
+		m_nodeIdx = fields.get("m_nodeIdx", 0);
+		m_probabilities = (double[]) fields.get("m_probabilities", null);
+		m_parent = (SplitNode) fields.get("m_parent", null);
+		m_offsetMean = (double[]) fields.get("m_offsetMean", null);
+		if (this instanceof LeafNode && fields.getObjectStreamClass().getField("m_offsets") != null) {
+			m_legacyOffsets = (List<int[]>) fields.get("m_offsets", null);
+		}
+	}
+
+	/**
+	 * @return the offset vectors of a deserialized legacy model, or null; they are only returned once
+	 */
+	List<int[]> takeLegacyOffsets() {
+		final List<int[]> offsets = m_legacyOffsets;
+		m_legacyOffsets = null;
+		return offsets;
 	}
 
 	private double[] offsetMean(final List<int[]> offsets) {
@@ -149,7 +174,6 @@ public abstract class Node implements Serializable {
 		result = prime * result + m_depth;
 		result = prime * result + m_nodeIdx;
 		result = prime * result + Arrays.hashCode(m_offsetMean);
-		result = prime * result + ((m_offsets == null) ? 0 : m_offsets.hashCode());
 		result = prime * result + ((m_parent == null) ? 0 : m_parent.hashCode());
 		result = prime * result + Arrays.hashCode(m_probabilities);
 		return result;
@@ -170,11 +194,6 @@ public abstract class Node implements Serializable {
 			return false;
 		if (!Arrays.equals(m_offsetMean, other.m_offsetMean))
 			return false;
-		if (m_offsets == null) {
-			if (other.m_offsets != null)
-				return false;
-		} else if (!Arrays.deepEquals(m_offsets.toArray(), other.m_offsets.toArray()))
-			return false;
 		// TODO parent cannot be compared, because it leads to a recurrent loop
 		// if (m_parent == null) {
 		// if (other.m_parent != null)
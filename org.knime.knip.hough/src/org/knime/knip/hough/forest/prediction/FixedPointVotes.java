@@ -0,0 +1,162 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.forest.prediction;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Votes which can be added by several threads at the same time without locking. Each vote is rounded to a fixed-point
+ * number and added atomically. Since the addition of integers is associative, the sum does not depend on the order in
+ * which the threads add their votes. Like {@link SparseVotes}, the votes are stored in square blocks, which are
+ * allocated when the first vote lands in them. The sum of the votes of a pixel saturates at 2^31, since a vote of
+ * weight 1 is stored as 2^32 in a long. Votes must not be negative.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+public final class FixedPointVotes implements VoteAccumulator {
+
+	// a vote with weight 1 is stored as 2^32, i.e. the sum of the votes of a pixel may be up to 2^31
+	private static final double ONE = 1L << 32;
+
+	private static final int BLOCK_SHIFT = 6;
+
+	private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+	private final int m_width;
+	private final int m_height;
+	private final int m_numBlocksX;
+
+	// blocks in row-major order, null if no vote landed in it
+	private final AtomicReferenceArray<AtomicLongArray> m_blocks;
+
+	/**
+	 * Creates empty votes.
+	 *
+	 * @param width the width of the votes
+	 * @param height the height of the votes
+	 */
+	public FixedPointVotes(final long width, final long height) {
+		m_width = (int) width;
+		m_height = (int) height;
+		m_numBlocksX = (m_width + BLOCK_MASK) >> BLOCK_SHIFT;
+		m_blocks = new AtomicReferenceArray<>(m_numBlocksX * ((m_height + BLOCK_MASK) >> BLOCK_SHIFT));
+	}
+
+	@Override
+	public void add(final int x, final int y, final double weight) {
+		final int b = (y >> BLOCK_SHIFT) * m_numBlocksX + (x >> BLOCK_SHIFT);
+		AtomicLongArray block = m_blocks.get(b);
+		if (block == null) {
+			// if another thread was faster, its block is used
+			m_blocks.compareAndSet(b, null, new AtomicLongArray(BLOCK_SIZE * BLOCK_SIZE));
+			block = m_blocks.get(b);
+		}
+		final int i = ((y & BLOCK_MASK) << BLOCK_SHIFT) + (x & BLOCK_MASK);
+		final long value = Math.round(weight * ONE);
+		final long previous = block.getAndAdd(i, value);
+		if (previous + value < previous) {
+			saturate(block, i);
+		}
+	}
+
+	// the thread whose vote overflowed the sum replaces it by the maximum, votes added in between are lost
+	private static void saturate(final AtomicLongArray block, final int i) {
+		long sum = block.get(i);
+		while (sum < 0 && !block.compareAndSet(i, sum, Long.MAX_VALUE)) {
+			sum = block.get(i);
+		}
+	}
+
+	/**
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return the sum of the votes at the given position
+	 */
+	public float get(final int x, final int y) {
+		final AtomicLongArray block = m_blocks.get((y >> BLOCK_SHIFT) * m_numBlocksX + (x >> BLOCK_SHIFT));
+		return block == null ? 0 : (float) (block.get(((y & BLOCK_MASK) << BLOCK_SHIFT) + (x & BLOCK_MASK)) / ONE);
+	}
+
+	@Override
+	public void addTo(final RandomAccessibleInterval<FloatType> votes) {
+		final SparseVotes sparseVotes = votes instanceof SparseVotes ? (SparseVotes) votes : null;
+		final RandomAccess<FloatType> raVotes = sparseVotes == null ? votes.randomAccess() : null;
+		for (int b = 0; b < m_blocks.length(); b++) {
+			final AtomicLongArray block = m_blocks.get(b);
+			if (block == null) {
+				continue;
+			}
+			final int minX = (b % m_numBlocksX) << BLOCK_SHIFT;
+			final int minY = (b / m_numBlocksX) << BLOCK_SHIFT;
+			for (int y = minY; y < Math.min(minY + BLOCK_SIZE, m_height); y++) {
+				for (int x = minX; x < Math.min(minX + BLOCK_SIZE, m_width); x++) {
+					final long value = block.get(((y - minY) << BLOCK_SHIFT) + x - minX);
+					if (value == 0) {
+						continue;
+					}
+					if (sparseVotes != null) {
+						sparseVotes.add(x, y, value / ONE);
+					} else {
+						raVotes.setPosition(votes.min(0) + x, 0);
+						raVotes.setPosition(votes.min(1) + y, 1);
+						final FloatType vote = raVotes.get();
+						vote.set((float) (vote.get() + value / ONE));
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,363 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.forest.prediction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+/**
+ * Finds the peaks of the votes of several scales in one pass which smooths, thresholds and suppresses non-maxima tile
+ * by tile. A tile consists of rows of all scales, it is smoothed with a halo of the radius of the suppression, so that
+ * the smoothed votes of the whole image are never stored. The tiles are processed in parallel. The votes are smoothed
+ * like {@link VoteSmoothing} with the separable kernels of {@link VoteSmoothing#getKernel(double)}.
+ * <p>
+ * A peak is a pixel whose smoothed votes are above the threshold and not below the smoothed votes of any pixel of all
+ * scales within the radius of the suppression in x and y direction. Of several equal values, the first in the order
+ * of a flat iteration is the peak. If only the best peaks are requested, every tile keeps them in a bounded min-heap,
+ * so that the memory does not depend on the number of peaks above the threshold.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+public final class PeakFinder {
+
+	private static final int TILE_HEIGHT = 64;
+
+	// lower votes first, of equal votes the later one in the order of a flat iteration first
+	private static final Comparator<Peak> WORST_FIRST = (p1, p2) -> {
+		if (p1.m_score != p2.m_score) {
+			return Float.compare(p1.m_score, p2.m_score);
+		}
+		for (int d = p1.m_position.length - 1; d >= 0; d--) {
+			if (p1.m_position[d] != p2.m_position[d]) {
+				return Integer.compare(p2.m_position[d], p1.m_position[d]);
+			}
+		}
+		return 0;
+	};
+
+	private PeakFinder() {
+		// utility class
+	}
+
+	/**
+	 * A peak of the votes.
+	 */
+	public static final class Peak {
+
+		private final int[] m_position;
+		private final float m_score;
+
+		Peak(final int[] position, final float score) {
+			m_position = position;
+			m_score = score;
+		}
+
+		/**
+		 * @return the position of the peak, which has a third coordinate for the scale if there is more than one scale
+		 */
+		public int[] getPosition() {
+			return m_position;
+		}
+
+		/**
+		 * @return the smoothed votes at the peak
+		 */
+		public float getScore() {
+			return m_score;
+		}
+	}
+
+	/**
+	 * Finds the peaks of the votes.
+	 *
+	 * @param votesAllSc the votes of each scale, which all have the same size
+	 * @param sigmaXY sigma of the Gaussian in x and y direction
+	 * @param sigmaZ sigma of the Gaussian across the scales
+	 * @param threshold the smoothed votes of a peak must be above this threshold
+	 * @param suppression radius in which a peak must be the maximum, at least one pixel is used
+	 * @param maxNumPeaks the maximum number of peaks, 0 for all peaks
+	 * @param es executor service used to process the tiles in parallel, may be null
+	 * @return all peaks in the order of a flat iteration or the best peaks in descending order of their votes
+	 */
+	public static List<Peak> findPeaks(final List<? extends RandomAccessibleInterval<FloatType>> votesAllSc,
+			final double sigmaXY, final double sigmaZ, final double threshold, final double suppression,
+			final int maxNumPeaks, final ExecutorService es) {
+		final Votes votes = new Votes(votesAllSc);
+		final int radius = Math.max(1, (int) suppression);
+		final List<FindPeaks> tiles = new ArrayList<>();
+		for (int y = 0; y < votes.m_height; y += TILE_HEIGHT) {
+			tiles.add(new FindPeaks(votes, sigmaXY, sigmaZ, (float) threshold, radius, maxNumPeaks, y,
+					Math.min(y + TILE_HEIGHT, votes.m_height)));
+		}
+		final List<Peak> peaks = new ArrayList<>();
+		if (es == null) {
+			for (final FindPeaks tile : tiles) {
+				peaks.addAll(tile.call());
+			}
+		} else {
+			try {
+				for (final Future<List<Peak>> future : es.invokeAll(tiles)) {
+					peaks.addAll(future.get());
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (final ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+		if (maxNumPeaks > 0) {
+			peaks.sort(WORST_FIRST.reversed());
+			return new ArrayList<>(peaks.subList(0, Math.min(maxNumPeaks, peaks.size())));
+		}
+		// the tiles are ordered by rows, but the scale is the slowest dimension of a flat iteration
+		if (votes.m_numScales > 1) {
+			peaks.sort((p1, p2) -> Integer.compare(p1.m_position[2], p2.m_position[2]));
+		}
+		return peaks;
+	}
+
+	/**
+	 * Read access to the unsmoothed votes of all scales.
+	 */
+	private static final class Votes {
+
+		private final int m_width;
+		private final int m_height;
+		private final int m_numScales;
+		// either the dense or the sparse votes of a scale are set
+		private final float[][] m_dense;
+		private final SparseVotes[] m_sparse;
+
+		Votes(final List<? extends RandomAccessibleInterval<FloatType>> votesAllSc) {
+			m_width = (int) votesAllSc.get(0).dimension(0);
+			m_height = (int) votesAllSc.get(0).dimension(1);
+			m_numScales = votesAllSc.size();
+			m_dense = new float[m_numScales][];
+			m_sparse = new SparseVotes[m_numScales];
+			for (int z = 0; z < m_numScales; z++) {
+				final RandomAccessibleInterval<FloatType> votes = votesAllSc.get(z);
+				if (votes instanceof SparseVotes) {
+					m_sparse[z] = (SparseVotes) votes;
+				} else if (votes instanceof ArrayImg
+						&& ((ArrayImg<?, ?>) votes).update(null) instanceof FloatArray) {
+					m_dense[z] = ((FloatArray) ((ArrayImg<?, ?>) votes).update(null)).getCurrentStorageArray();
+				} else {
+					m_dense[z] = new float[m_width * m_height];
+					final Cursor<FloatType> cursor = Views.flatIterable(votes).cursor();
+					for (int i = 0; i < m_dense[z].length; i++) {
+						m_dense[z][i] = cursor.next().get();
+					}
+				}
+			}
+		}
+
+		float get(final int x, final int y, final int z) {
+			return m_sparse[z] != null ? m_sparse[z].get(x, y) : m_dense[z][y * m_width + x];
+		}
+	}
+
+	/**
+	 * Smooths the rows of a tile and its halo and finds the peaks in the rows of the tile.
+	 */
+	private static final class FindPeaks implements Callable<List<Peak>> {
+
+		private final Votes m_votes;
+		private final double m_sigmaXY;
+		private final double m_sigmaZ;
+		private final float m_threshold;
+		private final int m_radius;
+		private final int m_maxNumPeaks;
+		private final int m_fromY;
+		private final int m_toY;
+
+		FindPeaks(final Votes votes, final double sigmaXY, final double sigmaZ, final float threshold,
+				final int radius, final int maxNumPeaks, final int fromY, final int toY) {
+			m_votes = votes;
+			m_sigmaXY = sigmaXY;
+			m_sigmaZ = sigmaZ;
+			m_threshold = threshold;
+			m_radius = radius;
+			m_maxNumPeaks = maxNumPeaks;
+			m_fromY = fromY;
+			m_toY = toY;
+		}
+
+		@Override
+		public List<Peak> call() {
+			final int width = m_votes.m_width;
+			final int numScales = m_votes.m_numScales;
+			// smoothed rows including the halo
+			final int haloFromY = Math.max(0, m_fromY - m_radius);
+			final int haloToY = Math.min(m_votes.m_height, m_toY + m_radius);
+			final float[][] smoothedXY = new float[numScales][];
+			for (int z = 0; z < numScales; z++) {
+				smoothedXY[z] = smoothXY(z, haloFromY, haloToY);
+			}
+			final float[][] smoothed;
+			if (numScales > 1) {
+				final float[] kernel = VoteSmoothing.getKernel(m_sigmaZ);
+				final int radiusZ = kernel.length / 2;
+				smoothed = new float[numScales][smoothedXY[0].length];
+				for (int z = 0; z < numScales; z++) {
+					for (int i = 0; i < smoothed[z].length; i++) {
+						double sum = 0;
+						for (int k = Math.max(-radiusZ, -z); k <= Math.min(radiusZ, numScales - 1 - z); k++) {
+							sum += kernel[k + radiusZ] * smoothedXY[z + k][i];
+						}
+						smoothed[z][i] = (float) sum;
+					}
+				}
+			} else {
+				smoothed = smoothedXY;
+			}
+			final List<Peak> peaks = new ArrayList<>();
+			final PriorityQueue<Peak> bestPeaks = m_maxNumPeaks > 0 ? new PriorityQueue<>(WORST_FIRST) : null;
+			for (int z = 0; z < numScales; z++) {
+				for (int y = m_fromY; y < m_toY; y++) {
+					for (int x = 0; x < width; x++) {
+						final float value = smoothed[z][(y - haloFromY) * width + x];
+						if (value > m_threshold && (bestPeaks == null || bestPeaks.size() < m_maxNumPeaks
+								|| isBetter(value, x, y, z, bestPeaks.peek()))
+								&& isPeak(smoothed, x, y, z, value, haloFromY, haloToY)) {
+							final Peak peak = new Peak(numScales > 1 ? new int[] { x, y, z } : new int[] { x, y },
+									value);
+							if (bestPeaks == null) {
+								peaks.add(peak);
+							} else {
+								bestPeaks.add(peak);
+								if (bestPeaks.size() > m_maxNumPeaks) {
+									bestPeaks.poll();
+								}
+							}
+						}
+					}
+				}
+			}
+			return bestPeaks == null ? peaks : new ArrayList<>(bestPeaks);
+		}
+
+		// true, if the votes at (x, y, z) make a better peak than the given one
+		private static boolean isBetter(final float value, final int x, final int y, final int z, final Peak peak) {
+			if (value != peak.m_score) {
+				return value > peak.m_score;
+			}
+			final int[] position = peak.m_position;
+			return isBefore(x, y, z, position[0], position[1], position.length > 2 ? position[2] : 0);
+		}
+
+		private boolean isPeak(final float[][] smoothed, final int x, final int y, final int z, final float value,
+				final int haloFromY, final int haloToY) {
+			final int width = m_votes.m_width;
+			for (int zz = 0; zz < smoothed.length; zz++) {
+				for (int yy = Math.max(haloFromY, y - m_radius); yy < Math.min(haloToY, y + m_radius + 1); yy++) {
+					final int dy = yy - y;
+					final int dx = (int) Math.sqrt(m_radius * m_radius - dy * dy);
+					for (int xx = Math.max(0, x - dx); xx < Math.min(width, x + dx + 1); xx++) {
+						final float other = smoothed[zz][(yy - haloFromY) * width + xx];
+						if (other > value || (other == value && isBefore(xx, yy, zz, x, y, z))) {
+							return false;
+						}
+					}
+				}
+			}
+			return true;
+		}
+
+		// true, if (x1, y1, z1) comes before (x2, y2, z2) in a flat iteration
+		private static boolean isBefore(final int x1, final int y1, final int z1, final int x2, final int y2,
+				final int z2) {
+			if (z1 != z2) {
+				return z1 < z2;
+			}
+			return y1 != y2 ? y1 < y2 : x1 < x2;
+		}
+
+		// smooths the rows of a scale in y and then in x direction
+		private float[] smoothXY(final int z, final int fromY, final int toY) {
+			final int width = m_votes.m_width;
+			final int height = m_votes.m_height;
+			final float[] kernel = VoteSmoothing.getKernel(m_sigmaXY);
+			final int radius = kernel.length / 2;
+			final float[] result = new float[(toY - fromY) * width];
+			final double[] row = new double[width];
+			for (int y = fromY; y < toY; y++) {
+				Arrays.fill(row, 0);
+				for (int k = Math.max(-radius, -y); k <= Math.min(radius, height - 1 - y); k++) {
+					final float weight = kernel[k + radius];
+					for (int x = 0; x < width; x++) {
+						row[x] += weight * m_votes.get(x, y + k, z);
+					}
+				}
+				for (int x = 0; x < width; x++) {
+					double sum = 0;
+					for (int k = Math.max(-radius, -x); k <= Math.min(radius, width - 1 - x); k++) {
+						sum += kernel[k + radius] * row[x + k];
+					}
+					result[(y - fromY) * width + x] = (float) sum;
+				}
+			}
+			return result;
+		}
+	}
+}
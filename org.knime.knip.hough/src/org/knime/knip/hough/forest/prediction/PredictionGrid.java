@@ -0,0 +1,292 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.forest.prediction;
+
+import org.knime.knip.hough.features.FeatureTensor;
+import org.knime.knip.hough.forest.flat.FlatForest;
+import org.knime.knip.hough.grid.Grid;
+import org.knime.knip.hough.grid.Grids;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * The grid of patches of an image which are predicted, without an object per patch. A patch is addressed by the index
+ * of its cell, the patch at grid position (x, y) has the index x * height + y. Its position in the image is computed
+ * from this index like in {@link Grids#createGrid(RandomAccessibleInterval, long[], long[])}, and the leaves the
+ * patches reached are stored in one array for all trees.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+public final class PredictionGrid<T extends RealType<T>> {
+
+	private final RandomAccessibleInterval<T> m_featureImg;
+	private final FeatureTensor m_features;
+	private final int m_width;
+	private final int m_height;
+
+	// min of the first patch and distance between the mins of two neighbored patches
+	private final int m_minX;
+	private final int m_minY;
+	private final int m_strideX;
+	private final int m_strideY;
+
+	// offset of the patch mid to the min of a patch
+	private final int m_midX;
+	private final int m_midY;
+
+	// inactive patches are neither predicted nor voted, e.g. if they are outside of the region of interest
+	private final boolean[] m_inactive;
+
+	// the leaf of tree t reached by patch c is stored at t * numCells + c, -1 if the patch was not passed down the tree
+	private FlatForest m_forest;
+	private int[] m_leafIds;
+
+	/**
+	 * Creates the grid of patches of a feature image. All patches are active and have not been predicted yet.
+	 *
+	 * @param featureImg the feature image the patches are part of
+	 * @param features the materialized feature image, may be null
+	 * @param patchGap the stride of the grid
+	 * @param patchSize the size of the patches
+	 */
+	public PredictionGrid(final RandomAccessibleInterval<T> featureImg, final FeatureTensor features,
+			final long[] patchGap, final long[] patchSize) {
+		final Grid<T> grid = Grids.createGrid(featureImg, patchGap, patchSize);
+		m_featureImg = featureImg;
+		m_features = features;
+		m_width = (int) grid.dimension(0);
+		m_height = (int) grid.dimension(1);
+		final int[] min = new int[2];
+		final int[] mid = new int[2];
+		for (int d = 0; d < 2; d++) {
+			final long span = grid.getSpan()[d];
+			if (span < 0) {
+				min[d] = (int) featureImg.min(d);
+				mid[d] = (int) (featureImg.dimension(d) / 2);
+			} else {
+				min[d] = (int) (grid.getOrigin()[d] - span);
+				mid[d] = (int) ((grid.skipCenter()[d] ? 2 * span + 1 : 2 * span) / 2);
+			}
+		}
+		m_minX = min[0];
+		m_minY = min[1];
+		m_strideX = (int) grid.getGap()[0];
+		m_strideY = (int) grid.getGap()[1];
+		m_midX = mid[0];
+		m_midY = mid[1];
+		m_inactive = new boolean[m_width * m_height];
+	}
+
+	private PredictionGrid(final PredictionGrid<T> grid, final FeatureTensor features) {
+		m_featureImg = grid.m_featureImg;
+		m_features = features;
+		m_width = grid.m_width;
+		m_height = grid.m_height;
+		m_minX = grid.m_minX;
+		m_minY = grid.m_minY;
+		m_strideX = grid.m_strideX;
+		m_strideY = grid.m_strideY;
+		m_midX = grid.m_midX;
+		m_midY = grid.m_midY;
+		m_inactive = grid.m_inactive.clone();
+	}
+
+	/**
+	 * @param features the materialized feature image, may be null
+	 * @return a grid of the same patches which reads the features from the given tensor, the patches are active like
+	 *         in this grid and have not been predicted yet
+	 */
+	public PredictionGrid<T> copy(final FeatureTensor features) {
+		return new PredictionGrid<>(this, features);
+	}
+
+	/**
+	 * @return the number of patches in x direction
+	 */
+	public int getWidth() {
+		return m_width;
+	}
+
+	/**
+	 * @return the number of patches in y direction
+	 */
+	public int getHeight() {
+		return m_height;
+	}
+
+	/**
+	 * @return the number of patches
+	 */
+	public int getNumCells() {
+		return m_inactive.length;
+	}
+
+	/**
+	 * @param cell index of the patch
+	 * @return the x coordinate of the min of the patch
+	 */
+	public int getMinX(final int cell) {
+		return m_minX + (cell / m_height) * m_strideX;
+	}
+
+	/**
+	 * @param cell index of the patch
+	 * @return the y coordinate of the min of the patch
+	 */
+	public int getMinY(final int cell) {
+		return m_minY + (cell % m_height) * m_strideY;
+	}
+
+	/**
+	 * @param cell index of the patch
+	 * @return the x coordinate of the mid of the patch
+	 */
+	public int getPatchMidX(final int cell) {
+		return getMinX(cell) + m_midX;
+	}
+
+	/**
+	 * @param cell index of the patch
+	 * @return the y coordinate of the mid of the patch
+	 */
+	public int getPatchMidY(final int cell) {
+		return getMinY(cell) + m_midY;
+	}
+
+	/**
+	 * @return a new {@link RandomAccess} of the feature image
+	 */
+	public RandomAccess<T> randomAccess() {
+		return m_featureImg.randomAccess();
+	}
+
+	/**
+	 * @return the materialized feature image or null, if the features are accessed by random accesses
+	 */
+	public FeatureTensor getFeatureTensor() {
+		return m_features;
+	}
+
+	/**
+	 * @param cell index of the patch
+	 * @return the index of the min of the patch in the {@link FeatureTensor}
+	 */
+	public int getFeatureIndex(final int cell) {
+		return m_features.getIndex(getMinX(cell), getMinY(cell), 0);
+	}
+
+	/**
+	 * @param cell index of the patch
+	 * @param active if false, the patch is neither predicted nor voted, but stays at the root of each tree
+	 */
+	public void setActive(final int cell, final boolean active) {
+		m_inactive[cell] = !active;
+	}
+
+	/**
+	 * @param cell index of the patch
+	 * @return true, if the patch is predicted
+	 */
+	public boolean isActive(final int cell) {
+		return !m_inactive[cell];
+	}
+
+	/**
+	 * @return the number of active patches
+	 */
+	public int getNumActive() {
+		int numActive = 0;
+		for (final boolean inactive : m_inactive) {
+			if (!inactive) {
+				numActive++;
+			}
+		}
+		return numActive;
+	}
+
+	/**
+	 * Stores the leaves the patches reached.
+	 *
+	 * @param forest the forest which has been predicted
+	 * @param leafIds the leaf of tree t reached by patch c at t * numCells + c, -1 if the patch was not passed down
+	 *            the tree
+	 */
+	void setLeafIds(final FlatForest forest, final int[] leafIds) {
+		m_forest = forest;
+		m_leafIds = leafIds;
+	}
+
+	/**
+	 * @return the forest which has been predicted, null if the patches have not been predicted yet
+	 */
+	public FlatForest getForest() {
+		return m_forest;
+	}
+
+	/**
+	 * @param treeIdx index of the tree
+	 * @param cell index of the patch
+	 * @return index of the leaf of the tree the patch reached, -1 if the patch was not passed down the tree
+	 */
+	public int getLeafId(final int treeIdx, final int cell) {
+		return m_leafIds[treeIdx * m_inactive.length + cell];
+	}
+
+	/**
+	 * @param treeIdx index of the tree
+	 * @param cell index of the patch
+	 * @return the node index assigned during learning of the node of the tree the patch ended up in, which is the
+	 *         root if the patch was not passed down the tree
+	 */
+	public int getNodeIdx(final int treeIdx, final int cell) {
+		return m_forest.getTree(treeIdx).getNodeIdx(Math.max(0, getLeafId(treeIdx, cell)));
+	}
+}
@@ -48,17 +48,27 @@
  */
 package org.knime.knip.hough.forest.prediction;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.knime.knip.hough.features.FeatureTensor;
 import org.knime.knip.hough.forest.HoughForest;
-import org.knime.knip.hough.forest.node.LeafNode;
-import org.knime.knip.hough.forest.node.Node;
-import org.knime.knip.hough.forest.node.SplitNode;
-import org.knime.knip.hough.forest.split.SplitFunction.Split;
+import org.knime.knip.hough.forest.flat.FlatForest;
+import org.knime.knip.hough.forest.flat.FlatTree;
+import org.knime.knip.hough.forest.flat.NodeMaps;
+import org.knime.knip.hough.forest.flat.VoteTable;
 import org.knime.knip.hough.nodes.predictor.HoughForestPredictorConfig;
 
+import net.imglib2.Cursor;
 import net.imglib2.FinalInterval;
 import net.imglib2.Interval;
 import net.imglib2.Localizable;
@@ -67,6 +77,7 @@ import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
 
 /**
  * Several methods used for prediction, voting and back projection.
@@ -75,88 +86,496 @@ import net.imglib2.type.numeric.real.FloatType;
  */
 public final class PredictorEntangled {
 
-	private static <T extends RealType<T>> void predictTree(final Map<PredictionObject<T>, Node> mapPredObjNode,
-			final int treeIdx, final HoughForestPredictorConfig config) {
-		boolean again = false;
-		final int[] stride = new int[] { config.getPatchGapX(), config.getPatchGapY() };
-		for (final PredictionObject<T> predObj : mapPredObjNode.keySet()) {
-			final Node node = mapPredObjNode.get(predObj);
-			if (node instanceof LeafNode) {
-				predObj.addPrediction((LeafNode) node);
-				continue;
-			}
-			again = true;
-			if (!(node instanceof SplitNode)) {
-				throw new IllegalArgumentException("Unexpected node type: " + node.getClass());
+	/*
+	 * Pool of one thread per core the tiles are passed to, if the trees are predicted in parallel on fewer threads
+	 * than cores. It is shared by all predictions, which cannot deadlock since a tile never waits for other tasks.
+	 */
+	private static final ExecutorService TILE_EXECUTOR = Executors
+			.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				private final AtomicInteger m_counter = new AtomicInteger();
+
+				@Override
+				public Thread newThread(final Runnable r) {
+					final Thread t = new Thread(r, "Hough Forest Predictor-Tile-" + m_counter.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+
+	/**
+	 * Passes all patches level by level down the tree. All split decisions of a level are made on the node grid of the
+	 * previous level, which is the same order as during learning. Only patches which did not reach a leaf yet are
+	 * revisited. If an {@link ExecutorService} is given, the grid is split into tiles which are processed in parallel
+	 * and synchronized after each level, which leads to the same result. Patches rejected by the cascade are not passed
+	 * down the tree and stay at the root.
+	 * 
+	 * @param tree the tree
+	 * @param grid the grid of patches
+	 * @param stride the stride of the grid
+	 * @param precomputeOffsets if true and the grid provides a {@link FeatureTensor}, the offsets of the features
+	 *            tested by the tree are computed for the tensor before the prediction
+	 * @param tileSize width and height of a tile in number of patches
+	 * @param es {@link ExecutorService} used to process the tiles in parallel, may be null
+	 * @param rejected flags of the patches rejected by the cascade, may be null
+	 * @return index of the leaf each patch ended up in, the root for rejected patches
+	 */
+	private static <T extends RealType<T>> int[] predictTree(final FlatTree tree, final PredictionGrid<T> grid,
+			final int[] stride, final boolean precomputeOffsets, final int tileSize, final ExecutorService es,
+			final boolean[] rejected) {
+		if (tree.isLeaf(0)) {
+			return new int[grid.getNumCells()];
+		}
+		// current node of each patch, all patches start at the root
+		final NodeMaps nodes = new NodeMaps(tree, grid.getNumCells());
+		final int[] nextNodeIds = new int[grid.getNumCells()];
+		final int[] probeOffsets = tree.getProbeOffsets(stride);
+		final FeatureTensor features = grid.getFeatureTensor();
+		final int[] featureOffsets = precomputeOffsets && features != null ? tree.getFeatureOffsets(features) : null;
+		final RandomAccess<T> raFeatures = grid.randomAccess();
+		final List<Tile<T>> tiles = new ArrayList<>();
+		final int gridWidth = grid.getWidth();
+		final int gridHeight = grid.getHeight();
+		if (es == null) {
+			tiles.add(new Tile<>(tree, grid, nodes, nextNodeIds, probeOffsets, featureOffsets, raFeatures, rejected,
+					0, gridWidth, 0, gridHeight));
+		} else {
+			for (int x = 0; x < gridWidth; x += tileSize) {
+				for (int y = 0; y < gridHeight; y += tileSize) {
+					tiles.add(new Tile<>(tree, grid, nodes, nextNodeIds, probeOffsets, featureOffsets,
+							raFeatures.copyRandomAccess(), rejected, x, Math.min(x + tileSize, gridWidth), y,
+							Math.min(y + tileSize, gridHeight)));
+				}
 			}
-			final Split splitDecision = ((SplitNode) node).getSplitFunction().apply(predObj, treeIdx, stride);
-			// and call recursively
-			if (splitDecision == Split.LEFT) {
-				final Node leftChild = ((SplitNode) node).getLeftChild();
-				mapPredObjNode.put(predObj, leftChild);
-				predObj.setNodeGrid(treeIdx, leftChild);
+		}
+		boolean active = true;
+		while (active) {
+			if (es == null) {
+				tiles.get(0).call();
 			} else {
-				final Node rightChild = ((SplitNode) node).getRightChild();
-				mapPredObjNode.put(predObj, rightChild);
-				predObj.setNodeGrid(treeIdx, rightChild);
+				try {
+					for (final Future<Void> future : es.invokeAll(tiles)) {
+						future.get();
+					}
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				} catch (final ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				}
+			}
+			// all tiles are done, make the new level visible
+			active = false;
+			for (final Tile<T> tile : tiles) {
+				active |= tile.nextLevel();
 			}
 		}
-		if (again) {
-			predictTree(mapPredObjNode, treeIdx, config);
+		return nodes.getNodeIds();
+	}
+
+	/**
+	 * A rectangular part of the patch grid which keeps track of its patches which did not reach a leaf yet.
+	 */
+	private static final class Tile<T extends RealType<T>> implements Callable<Void> {
+
+		private final FlatTree m_tree;
+		private final PredictionGrid<T> m_grid;
+		private final NodeMaps m_nodes;
+		private final int[] m_nodeIds;
+		private final int[] m_nextNodeIds;
+		private final int[] m_probeOffsets;
+		private final int[] m_featureOffsets;
+		private final RandomAccess<T> m_raFeatures;
+		private final int[] m_active;
+		private int m_numActive;
+
+		Tile(final FlatTree tree, final PredictionGrid<T> grid, final NodeMaps nodes, final int[] nextNodeIds,
+				final int[] probeOffsets, final int[] featureOffsets, final RandomAccess<T> raFeatures,
+				final boolean[] rejected, final int minX, final int maxX, final int minY, final int maxY) {
+			m_tree = tree;
+			m_grid = grid;
+			m_nodes = nodes;
+			m_nodeIds = nodes.getNodeIds();
+			m_nextNodeIds = nextNodeIds;
+			m_probeOffsets = probeOffsets;
+			m_featureOffsets = featureOffsets;
+			m_raFeatures = raFeatures;
+			m_active = new int[(maxX - minX) * (maxY - minY)];
+			final int gridHeight = grid.getHeight();
+			for (int x = minX; x < maxX; x++) {
+				for (int y = minY; y < maxY; y++) {
+					if (rejected == null || !rejected[x * gridHeight + y]) {
+						m_active[m_numActive++] = x * gridHeight + y;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Computes the next node of all active patches of this tile.
+		 */
+		@Override
+		public Void call() {
+			for (int k = 0; k < m_numActive; k++) {
+				final int c = m_active[k];
+				m_nextNodeIds[c] = m_tree.getChild(m_nodeIds[c], m_grid, c, m_raFeatures, m_nodes, m_probeOffsets,
+						m_featureOffsets);
+			}
+			return null;
+		}
+
+		/**
+		 * Makes the nodes computed by {@link #call()} visible and drops the patches which reached a leaf.
+		 * 
+		 * @return true, if the tile still contains active patches
+		 */
+		boolean nextLevel() {
+			int numNext = 0;
+			for (int k = 0; k < m_numActive; k++) {
+				final int c = m_active[k];
+				m_nodes.setNode(c, m_nextNodeIds[c]);
+				if (!m_tree.isLeaf(m_nodeIds[c])) {
+					m_active[numNext++] = c;
+				}
+			}
+			m_numActive = numNext;
+			return m_numActive > 0;
 		}
 	}
 
 	/**
-	 * Allows to predict the class of the patch of an {@link PredictionObject} given an trained Hough forest, stores the
-	 * prediction into the object and writes a vote out.
+	 * Allows to predict the class of the patches of a {@link PredictionGrid} given an trained Hough forest, stores the
+	 * reached leaves into the grid and writes a vote out. Patches rejected by the cascade only store the leaves of the
+	 * trees of the first stage, inactive patches (see {@link PredictionGrid#setActive(int, boolean)}) do not store any
+	 * leaf. Both stay at the root of the trees they are not passed down.
 	 * 
 	 * @param forest forest to predict on
-	 * @param predObject object to predict
-	 * @param raVotes {@link RandomAccess} of the {@link RandomAccessibleInterval} in which the votes are written
+	 * @param grid the patches to predict
+	 * @param votes {@link RandomAccessibleInterval} in which the votes are written
 	 * @param scaledInterval scaled interval according to the scale of the input image
 	 * @param scale scale of the input image compared to the original scale of learning
+	 * @param config the config of the predictor
+	 * @param es {@link ExecutorService} used if the trees or tiles are predicted in parallel according to the config,
+	 *            if null everything is predicted on the calling thread
+	 * @return the number of patches rejected by the cascade
+	 */
+	public static <T extends RealType<T>> int predictForest(final HoughForest forest, final PredictionGrid<T> grid,
+			final RandomAccessibleInterval<FloatType> votes, final FinalInterval scaledInterval, final double scale,
+			final HoughForestPredictorConfig config, final ExecutorService es) {
+		return predictForest(forest, grid, votes, scaledInterval, scale,
+				new int[] { config.getPatchGapX(), config.getPatchGapY() }, config, es);
+	}
+
+	/**
+	 * Same as {@link #predictForest(HoughForest, PredictionGrid, RandomAccessibleInterval, FinalInterval, double,
+	 * HoughForestPredictorConfig, ExecutorService)}, but for a grid of patches whose stride differs from the one of
+	 * the config.
+	 * 
+	 * @param stride the stride of the grid of patches
+	 * @return the number of patches rejected by the cascade
 	 */
-	public static <T extends RealType<T>> void predictForest(final HoughForest forest,
-			final List<PredictionObject<T>> predObjects, final RandomAccess<FloatType> raVotes,
-			final FinalInterval scaledInterval, final double scale, final HoughForestPredictorConfig config) {
-		final double numTreesWeight = 1.0 / forest.getListOfTrees().size();
-		for (int i = 0; i < forest.getListOfTrees().size(); i++) {
-			final SplitNode root = forest.getListOfTrees().get(i);
-			setNodeGrid(i, predObjects, root);
-			// map needed to store current node during prediction (breadth first)
-			final Map<PredictionObject<T>, Node> mapPredObjNode = new HashMap<PredictionObject<T>, Node>();
-			initMap(mapPredObjNode, predObjects, root);
-			predictTree(mapPredObjNode, i, config);
-			for (final PredictionObject<T> predObj : predObjects) {
-				final Node node = mapPredObjNode.get(predObj);
-				if (!(node instanceof LeafNode)) {
-					throw new IllegalStateException("Unexpected type of node predicted: " + node.getClass());
+	public static <T extends RealType<T>> int predictForest(final HoughForest forest, final PredictionGrid<T> grid,
+			final RandomAccessibleInterval<FloatType> votes, final FinalInterval scaledInterval, final double scale,
+			final int[] stride, final HoughForestPredictorConfig config, final ExecutorService es) {
+		final int numCells = grid.getNumCells();
+		final boolean precomputeOffsets = config.getPrecomputeFeatureOffsets();
+		final FlatForest flatForest = forest.getFlatForest();
+		final Votes votesData = new Votes(flatForest.getVoteTables(scale), config.getVoteAccumulation(), votes,
+				scaledInterval, scale);
+		// index of the leaf of each patch for each tree
+		final int[][] leafIds = new int[flatForest.getNumTrees()][];
+		// patches whose mean foreground probability after the first trees is too low are rejected by the cascade and
+		// are neither predicted nor voted by the remaining trees
+		final int numCascadeTrees = config.getCascade()
+				? Math.min(config.getCascadeNumTrees(), flatForest.getNumTrees()) : flatForest.getNumTrees();
+		final boolean[] rejected = new boolean[numCells];
+		for (int c = 0; c < numCells; c++) {
+			rejected[c] = !grid.isActive(c);
+		}
+		int numRejected = 0;
+
+		final int numThreads = Math.min(flatForest.getNumTrees(), Runtime.getRuntime().availableProcessors());
+		if (es == null || !config.getParallelTrees() || numThreads < 2) {
+			// the tiles of a tree may still be processed in parallel
+			final ExecutorService esTiles = config.getParallelTiles() ? es : null;
+			for (int i = 0; i < flatForest.getNumTrees(); i++) {
+				if (i == numCascadeTrees) {
+					numRejected = reject(flatForest, leafIds, numCascadeTrees, config.getCascadeThreshold(), rejected);
 				}
-				final LeafNode predictedLeafNode = (LeafNode) node;
-				// predObj.addPrediction(predictedLeafNode); TODO check (l. 84)
-				for (final int[] offset : ((LeafNode) node).getOffsetVectors()) {
-					if (offset.length > 0) {
-						final int patchX = predObj.getPatchMid()[0];
-						final int patchY = predObj.getPatchMid()[1];
-						final int[] pos = new int[] { patchX + offset[0], patchY + offset[1] };
-						if (contains2D(scaledInterval, pos)) {
-							raVotes.setPosition((int) (pos[0] / scale), 0);
-							raVotes.setPosition((int) (pos[1] / scale), 1);
-							raVotes.get()
-									.setReal(raVotes.get().getRealDouble()
-											+ numTreesWeight * ((1.0 / scale) * (predictedLeafNode.getProbability(1)
-													/ predictedLeafNode.getNumElementsOfClazz1()))); // TODO
-							// check
-							// if
-							// scale
-							// weighting
-							// is
-							// correct
-						}
-					}
+				leafIds[i] = predictTree(flatForest.getTree(i), grid, stride, precomputeOffsets, config.getTileSize(),
+						esTiles, rejected);
+				votesData.vote(i, leafIds[i], grid, rejected);
+			}
+		} else {
+			// if there are less trees than cores, the threads of the trees pass their tiles to the tile pool
+			final ExecutorService esTiles = config.getParallelTiles()
+					&& numThreads < Runtime.getRuntime().availableProcessors() ? TILE_EXECUTOR : null;
+			final int tileSize = config.getTileSize();
+			predictParallel(flatForest, grid, stride, precomputeOffsets, leafIds, 0, numCascadeTrees, rejected,
+					votesData, numThreads, es, tileSize, esTiles);
+			if (numCascadeTrees < flatForest.getNumTrees()) {
+				numRejected = reject(flatForest, leafIds, numCascadeTrees, config.getCascadeThreshold(), rejected);
+				predictParallel(flatForest, grid, stride, precomputeOffsets, leafIds, numCascadeTrees,
+						flatForest.getNumTrees(), rejected, votesData, numThreads, es, tileSize, esTiles);
+			}
+		}
+		votesData.addTo(votes);
+
+		final int[] predictions = new int[flatForest.getNumTrees() * numCells];
+		for (int i = 0; i < flatForest.getNumTrees(); i++) {
+			for (int c = 0; c < numCells; c++) {
+				predictions[i * numCells + c] = grid.isActive(c) && (i < numCascadeTrees || !rejected[c])
+						? leafIds[i][c] : -1;
+			}
+		}
+		grid.setLeafIds(flatForest, predictions);
+		return numRejected;
+	}
+
+	/**
+	 * Rejects the patches whose mean foreground probability in the leaves of the first trees is below the threshold.
+	 * Patches which are already rejected, i.e. inactive patches, are not counted.
+	 * 
+	 * @return the number of rejected patches
+	 */
+	private static int reject(final FlatForest forest, final int[][] leafIds, final int numTrees,
+			final double threshold, final boolean[] rejected) {
+		int numRejected = 0;
+		for (int c = 0; c < rejected.length; c++) {
+			if (rejected[c]) {
+				continue;
+			}
+			double probability = 0;
+			for (int i = 0; i < numTrees; i++) {
+				probability += forest.getTree(i).getProbability(leafIds[i][c], 1);
+			}
+			if (probability / numTrees < threshold) {
+				rejected[c] = true;
+				numRejected++;
+			}
+		}
+		return numRejected;
+	}
+
+	/**
+	 * Predicts the trees in [fromTree, toTree) in parallel. Every thread predicts a subset of the trees and writes its
+	 * votes into an own array, which are added to the votes afterwards. If an {@link ExecutorService} for the tiles is
+	 * given, the tiles of each tree are processed in parallel on it.
+	 */
+	private static <T extends RealType<T>> void predictParallel(final FlatForest forest, final PredictionGrid<T> grid,
+			final int[] stride, final boolean precomputeOffsets, final int[][] leafIds, final int fromTree,
+			final int toTree, final boolean[] rejected, final Votes votes, final int numThreads,
+			final ExecutorService es, final int tileSize, final ExecutorService esTiles) {
+		final int step = Math.min(numThreads, toTree - fromTree);
+		final List<PredictParallel<T>> threads = new ArrayList<>(step);
+		for (int t = 0; t < step; t++) {
+			threads.add(new PredictParallel<>(forest, grid, stride, precomputeOffsets, leafIds, fromTree + t, toTree,
+					step, rejected, votes.createForThread(), tileSize, esTiles));
+		}
+		try {
+			for (final Future<Votes> future : es.invokeAll(threads)) {
+				votes.add(future.get());
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (final ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * The votes of an image collected in a {@link VoteAccumulator}, into which the precompiled {@link VoteTable}s of
+	 * the leaves are stamped.
+	 */
+	private static final class Votes {
+
+		private final VoteTable[] m_voteTables;
+		private final VoteAccumulator.Mode m_mode;
+		private final long m_width;
+		private final long m_height;
+		private final VoteAccumulator m_data;
+		private final int[] m_positionsX;
+		private final int[] m_positionsY;
+
+		Votes(final VoteTable[] voteTables, final VoteAccumulator.Mode mode,
+				final RandomAccessibleInterval<FloatType> votes, final FinalInterval scaledInterval,
+				final double scale) {
+			this(voteTables, mode, votes.dimension(0), votes.dimension(1),
+					VoteTable.createPositions((int) scaledInterval.dimension(0), scale),
+					VoteTable.createPositions((int) scaledInterval.dimension(1), scale));
+		}
+
+		private Votes(final VoteTable[] voteTables, final VoteAccumulator.Mode mode, final long width,
+				final long height, final int[] positionsX, final int[] positionsY) {
+			m_voteTables = voteTables;
+			m_mode = mode;
+			m_width = width;
+			m_height = height;
+			m_data = mode == VoteAccumulator.Mode.FIXED_POINT ? new FixedPointVotes(width, height)
+					: new SparseVotes(width, height);
+			m_positionsX = positionsX;
+			m_positionsY = positionsY;
+		}
+
+		/**
+		 * @return the votes another thread adds to, which are these votes if they are shared or empty private votes
+		 *         of the same size otherwise
+		 */
+		Votes createForThread() {
+			if (m_mode == VoteAccumulator.Mode.FIXED_POINT) {
+				return this;
+			}
+			return new Votes(m_voteTables, m_mode, m_width, m_height, m_positionsX, m_positionsY);
+		}
+
+		/**
+		 * Adds the votes of the leaves the patches reached in a tree.
+		 */
+		<T extends RealType<T>> void vote(final int treeIdx, final int[] leafIds, final PredictionGrid<T> grid,
+				final boolean[] rejected) {
+			final VoteTable voteTable = m_voteTables[treeIdx];
+			for (int c = 0; c < rejected.length; c++) {
+				if (!rejected[c]) {
+					voteTable.stamp(leafIds[c], grid.getPatchMidX(c), grid.getPatchMidY(c), m_data, m_positionsX,
+							m_positionsY);
+				}
+			}
+		}
+
+		/**
+		 * Adds the votes of a thread, see {@link #createForThread()}.
+		 */
+		void add(final Votes votes) {
+			if (votes != this) {
+				((SparseVotes) m_data).add((SparseVotes) votes.m_data);
+			}
+		}
+
+		void addTo(final RandomAccessibleInterval<FloatType> votes) {
+			m_data.addTo(votes);
+		}
+	}
+
+	private static final class PredictParallel<T extends RealType<T>> implements Callable<Votes> {
+
+		private final FlatForest m_forest;
+		private final PredictionGrid<T> m_grid;
+		private final int[] m_stride;
+		private final boolean m_precomputeOffsets;
+		private final int[][] m_leafIds;
+		private final int m_firstTree;
+		private final int m_toTree;
+		private final int m_step;
+		private final boolean[] m_rejected;
+		private final Votes m_votes;
+		private final int m_tileSize;
+		private final ExecutorService m_esTiles;
+
+		PredictParallel(final FlatForest forest, final PredictionGrid<T> grid, final int[] stride,
+				final boolean precomputeOffsets, final int[][] leafIds, final int firstTree, final int toTree,
+				final int step, final boolean[] rejected, final Votes votes, final int tileSize,
+				final ExecutorService esTiles) {
+			m_forest = forest;
+			m_grid = grid;
+			m_stride = stride;
+			m_precomputeOffsets = precomputeOffsets;
+			m_leafIds = leafIds;
+			m_firstTree = firstTree;
+			m_toTree = toTree;
+			m_step = step;
+			m_rejected = rejected;
+			m_votes = votes;
+			m_tileSize = tileSize;
+			m_esTiles = esTiles;
+		}
+
+		@Override
+		public Votes call() throws Exception {
+			for (int i = m_firstTree; i < m_toTree; i += m_step) {
+				m_leafIds[i] = predictTree(m_forest.getTree(i), m_grid, m_stride, m_precomputeOffsets, m_tileSize,
+						m_esTiles, m_rejected);
+				m_votes.vote(i, m_leafIds[i], m_grid, m_rejected);
+			}
+			return m_votes;
+		}
+	}
+
+	/**
+	 * Passes the patches down a single tree without voting, e.g. to compare the leaves reached with different
+	 * representations of the features.
+	 * 
+	 * @param forest the forest
+	 * @param grid the patches of an image
+	 * @param treeIdx index of the tree
+	 * @param config the config of the predictor
+	 * @return index of the leaf each patch ended up in, -1 for inactive patches
+	 */
+	public static <T extends RealType<T>> int[] predictLeaves(final HoughForest forest, final PredictionGrid<T> grid,
+			final int treeIdx, final HoughForestPredictorConfig config) {
+		final boolean[] inactive = new boolean[grid.getNumCells()];
+		for (int c = 0; c < inactive.length; c++) {
+			inactive[c] = !grid.isActive(c);
+		}
+		final FlatTree tree = forest.getFlatForest().getTree(treeIdx);
+		final int[] stride = new int[] { config.getPatchGapX(), config.getPatchGapY() };
+		final int[] leafIds = predictTree(tree, grid, stride, config.getPrecomputeFeatureOffsets(), 0, null, inactive);
+		for (int c = 0; c < leafIds.length; c++) {
+			if (inactive[c]) {
+				leafIds[c] = -1;
+			}
+		}
+		return leafIds;
+	}
+
+	/**
+	 * Deactivates the patches which cannot vote for a peak of the given votes, e.g. of a prediction with a coarse
+	 * stride. A pixel is a peak, if its value is at least the given fraction of the maximum. A patch can vote for a
+	 * peak, if the peak lies within the largest offset vector of the forest around its center. If the votes are empty,
+	 * all patches stay active.
+	 * 
+	 * @param forest the forest
+	 * @param grid the patches of an image
+	 * @param votes the votes, with the size of the unscaled image
+	 * @param fraction fraction of the maximum of the votes a peak must reach
+	 * @param scale scale of the patches compared to the votes
+	 * @return the number of active patches
+	 */
+	public static <T extends RealType<T>> int restrictToPeaks(final HoughForest forest, final PredictionGrid<T> grid,
+			final RandomAccessibleInterval<FloatType> votes, final double fraction, final double scale) {
+		final int width = (int) votes.dimension(0);
+		final int height = (int) votes.dimension(1);
+		float max = 0;
+		for (final FloatType vote : Views.iterable(votes)) {
+			max = Math.max(max, vote.get());
+		}
+		if (max > 0) {
+			// number of peaks in [0, x) x [0, y) at (y * (width + 1) + x), to count the peaks of a window in
+			// constant time
+			final int[] sums = new int[(width + 1) * (height + 1)];
+			final float threshold = (float) (fraction * max);
+			final Cursor<FloatType> cursor = Views.flatIterable(votes).cursor();
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					final int peak = cursor.next().get() >= threshold ? 1 : 0;
+					sums[(y + 1) * (width + 1) + x + 1] = peak + sums[y * (width + 1) + x + 1]
+							+ sums[(y + 1) * (width + 1) + x] - sums[y * (width + 1) + x];
+				}
+			}
+			final int radius = (int) Math.ceil(forest.getFlatForest().getMaxLeafOffset() / scale);
+			for (int c = 0; c < grid.getNumCells(); c++) {
+				final int x = (int) (grid.getPatchMidX(c) / scale);
+				final int y = (int) (grid.getPatchMidY(c) / scale);
+				final int minX = Math.max(0, x - radius);
+				final int minY = Math.max(0, y - radius);
+				final int maxX = Math.min(width, x + radius + 1);
+				final int maxY = Math.min(height, y + radius + 1);
+				if (minX >= maxX || minY >= maxY || sums[maxY * (width + 1) + maxX] - sums[minY * (width + 1) + maxX]
+						- sums[maxY * (width + 1) + minX] + sums[minY * (width + 1) + minX] == 0) {
+					grid.setActive(c, false);
 				}
 			}
 		}
+		return grid.getNumActive();
 	}
 
 	// returns the signed angle of a vector
@@ -173,17 +592,10 @@ public final class PredictorEntangled {
 		return Math.sqrt(x * x + y * y);
 	}
 
-	private static <T extends RealType<T>> void initMap(final Map<PredictionObject<T>, Node> sample,
-			final List<PredictionObject<T>> predObjects, final Node node) {
-		for (final PredictionObject<T> key : predObjects) {
-			sample.put(key, node);
-		}
-	}
-
-	private static boolean contains2D(final Interval containing, final int[] pos) {
-		if (pos[0] < containing.min(0) || pos[0] > containing.max(0))
+	private static boolean contains2D(final Interval containing, final int x, final int y) {
+		if (x < containing.min(0) || x > containing.max(0))
 			return false;
-		if (pos[1] < containing.min(1) || pos[1] > containing.max(1))
+		if (y < containing.min(1) || y > containing.max(1))
 			return false;
 		return true;
 	}
@@ -191,24 +603,27 @@ public final class PredictorEntangled {
 	/**
 	 * Get the vertices of the back projection.
 	 * 
-	 * @param predObject {@link PredictionObject} containing the predictions
+	 * @param grid {@link PredictionGrid} containing the predictions
+	 * @param cell index of the patch
 	 * @param scaledMaxInterval scaled interval containing the point of which had the most votes
 	 * @param scale scale
 	 * @return list of vertices
 	 */
-	public static <T extends RealType<T>> Map<Localizable, Integer> getVertices(final PredictionObject<T> predObject,
-			final FinalInterval scaledMaxInterval, final double scale) {
+	public static <T extends RealType<T>> Map<Localizable, Integer> getVertices(final PredictionGrid<T> grid,
+			final int cell, final FinalInterval scaledMaxInterval, final double scale) {
 		final Map<Localizable, Integer> vertices = new HashMap<>();
 		int counter = 0;
-		final int patchX = predObject.getPatchMid()[0];
-		final int patchY = predObject.getPatchMid()[1];
-		for (final LeafNode prediction : predObject.getPredictions()) {
-			if (prediction.getProbability(1) > 0.5) { // TODO was originally set to 0.5, good idea?
-				for (final int[] offset : prediction.getOffsetVectors()) {
-					if (offset.length > 0) {
-						if (contains2D(scaledMaxInterval, new int[] { patchX + offset[0], patchY + offset[1] })) {
-							counter++;
-						}
+		final int patchX = grid.getPatchMidX(cell);
+		final int patchY = grid.getPatchMidY(cell);
+		final FlatForest forest = grid.getForest();
+		for (int i = 0; i < forest.getNumTrees(); i++) {
+			final int leaf = grid.getLeafId(i, cell);
+			final FlatTree tree = forest.getTree(i);
+			if (leaf >= 0 && tree.getProbability(leaf, 1) > 0.5) { // TODO was originally set to 0.5, good idea?
+				final int[] offsets = tree.getLeafOffsets(leaf);
+				for (int k = 0; k < offsets.length; k += 2) {
+					if (contains2D(scaledMaxInterval, patchX + offsets[k], patchY + offsets[k + 1])) {
+						counter++;
 					}
 				}
 			}
@@ -220,11 +635,4 @@ public final class PredictorEntangled {
 		}
 		return vertices;
 	}
-
-	private static <T extends RealType<T>> void setNodeGrid(final int treeIdx,
-			final List<PredictionObject<T>> predObjects, final Node node) {
-		for (final PredictionObject<?> tObj : predObjects) {
-			tObj.setNodeGrid(treeIdx, node);
-		}
-	}
 }
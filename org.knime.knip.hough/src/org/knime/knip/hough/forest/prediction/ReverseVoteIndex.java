@@ -0,0 +1,189 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.forest.prediction;
+
+import java.util.Arrays;
+
+import org.knime.knip.hough.forest.flat.FlatForest;
+import org.knime.knip.hough.forest.flat.FlatTree;
+
+import net.imglib2.Interval;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Maps square cells of a scaled image to the patches which vote into them, so that the back projection of a maximum
+ * only needs to visit the patches which voted near it instead of all patches. Only the votes which are counted by
+ * {@link PredictorEntangled#getVertices(PredictionGrid, int, net.imglib2.FinalInterval, double)} are indexed. Votes
+ * outside of the image are assigned to the nearest cell at its border.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+public final class ReverseVoteIndex {
+
+	private static final int CELL_SHIFT = 4;
+
+	private final int m_numCellsX;
+	private final int m_numCellsY;
+
+	// the patches of cell c are m_patches[m_cellStarts[c]] to m_patches[m_cellStarts[c + 1] - 1], each once and
+	// in ascending order
+	private final int[] m_cellStarts;
+	private final int[] m_patches;
+
+	// marks the patches already returned by the current query
+	private final int[] m_queryMarks;
+	private int m_query;
+
+	/**
+	 * Creates the index of the given predicted patches.
+	 *
+	 * @param grid the predicted patches of one scale
+	 * @param scaledInterval the interval of the scaled image
+	 */
+	public <T extends RealType<T>> ReverseVoteIndex(final PredictionGrid<T> grid, final Interval scaledInterval) {
+		m_numCellsX = Math.max(1, (int) ((scaledInterval.dimension(0) + (1 << CELL_SHIFT) - 1) >> CELL_SHIFT));
+		m_numCellsY = Math.max(1, (int) ((scaledInterval.dimension(1) + (1 << CELL_SHIFT) - 1) >> CELL_SHIFT));
+		final int numCells = m_numCellsX * m_numCellsY;
+
+		// collect the cells of each patch, patch by patch
+		final int[] lastPatches = new int[numCells];
+		Arrays.fill(lastPatches, -1);
+		int[] pairCells = new int[1024];
+		int[] pairPatches = new int[1024];
+		int numPairs = 0;
+		final FlatForest forest = grid.getForest();
+		for (int p = 0; p < grid.getNumCells(); p++) {
+			final int patchX = grid.getPatchMidX(p);
+			final int patchY = grid.getPatchMidY(p);
+			for (int i = 0; i < forest.getNumTrees(); i++) {
+				final int leaf = grid.getLeafId(i, p);
+				final FlatTree tree = forest.getTree(i);
+				if (leaf < 0 || tree.getProbability(leaf, 1) <= 0.5) {
+					continue;
+				}
+				final int[] offsets = tree.getLeafOffsets(leaf);
+				for (int k = 0; k < offsets.length; k += 2) {
+					final int c = getCellY(patchY + offsets[k + 1]) * m_numCellsX + getCellX(patchX + offsets[k]);
+					if (lastPatches[c] == p) {
+						continue;
+					}
+					lastPatches[c] = p;
+					if (numPairs == pairCells.length) {
+						pairCells = Arrays.copyOf(pairCells, 2 * numPairs);
+						pairPatches = Arrays.copyOf(pairPatches, 2 * numPairs);
+					}
+					pairCells[numPairs] = c;
+					pairPatches[numPairs++] = p;
+				}
+			}
+		}
+
+		// sort the pairs by cell, the patches of a cell stay in ascending order
+		m_cellStarts = new int[numCells + 1];
+		for (int i = 0; i < numPairs; i++) {
+			m_cellStarts[pairCells[i] + 1]++;
+		}
+		for (int c = 0; c < numCells; c++) {
+			m_cellStarts[c + 1] += m_cellStarts[c];
+		}
+		final int[] next = Arrays.copyOf(m_cellStarts, numCells);
+		m_patches = new int[numPairs];
+		for (int i = 0; i < numPairs; i++) {
+			m_patches[next[pairCells[i]]++] = pairPatches[i];
+		}
+		m_queryMarks = new int[grid.getNumCells()];
+	}
+
+	private int getCellX(final int x) {
+		return Math.min(Math.max(x, 0) >> CELL_SHIFT, m_numCellsX - 1);
+	}
+
+	private int getCellY(final int y) {
+		return Math.min(Math.max(y, 0) >> CELL_SHIFT, m_numCellsY - 1);
+	}
+
+	/**
+	 * Returns the indices of all patches which may vote inside the given interval, i.e. all patches which vote into a
+	 * cell overlapping it. Patches which do not vote inside the interval may be returned as well, but no patch which
+	 * does is missing. This method is not thread-safe.
+	 *
+	 * @param interval the interval in the scaled image
+	 * @return the indices of the patches in ascending order
+	 */
+	public int[] getPatches(final Interval interval) {
+		m_query++;
+		final int minCellX = getCellX((int) Math.max(interval.min(0), Integer.MIN_VALUE));
+		final int maxCellX = getCellX((int) Math.min(interval.max(0), Integer.MAX_VALUE));
+		final int minCellY = getCellY((int) Math.max(interval.min(1), Integer.MIN_VALUE));
+		final int maxCellY = getCellY((int) Math.min(interval.max(1), Integer.MAX_VALUE));
+		int[] patches = new int[16];
+		int numPatches = 0;
+		for (int cy = minCellY; cy <= maxCellY; cy++) {
+			for (int cx = minCellX; cx <= maxCellX; cx++) {
+				final int c = cy * m_numCellsX + cx;
+				for (int i = m_cellStarts[c]; i < m_cellStarts[c + 1]; i++) {
+					final int p = m_patches[i];
+					if (m_queryMarks[p] == m_query) {
+						continue;
+					}
+					m_queryMarks[p] = m_query;
+					if (numPatches == patches.length) {
+						patches = Arrays.copyOf(patches, 2 * numPatches);
+					}
+					patches[numPatches++] = p;
+				}
+			}
+		}
+		patches = Arrays.copyOf(patches, numPatches);
+		// keep the order of the patches like in a scan over all patches
+		Arrays.sort(patches);
+		return patches;
+	}
+
+}
@@ -0,0 +1,379 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.forest.prediction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.AbstractInterval;
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+/**
+ * Two dimensional votes which are stored in square blocks. A block is only allocated when the first vote lands in it,
+ * hence the memory is proportional to the area which actually received votes. Blurring and the search for the maximum
+ * only visit the allocated blocks.
+ * <p>
+ * The votes can be used as a {@link RandomAccessibleInterval}, which is read-only.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+public final class SparseVotes extends AbstractInterval
+		implements RandomAccessibleInterval<FloatType>, VoteAccumulator {
+
+	private static final int BLOCK_SHIFT = 6;
+
+	private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+	private final int m_width;
+	private final int m_height;
+	private final int m_numBlocksX;
+
+	// blocks in row-major order, null if no vote landed in it
+	private final float[][] m_blocks;
+
+	/**
+	 * Creates empty votes.
+	 *
+	 * @param width the width of the votes
+	 * @param height the height of the votes
+	 */
+	public SparseVotes(final long width, final long height) {
+		super(new long[] { width, height });
+		m_width = (int) width;
+		m_height = (int) height;
+		m_numBlocksX = (m_width + BLOCK_MASK) >> BLOCK_SHIFT;
+		m_blocks = new float[m_numBlocksX * ((m_height + BLOCK_MASK) >> BLOCK_SHIFT)][];
+	}
+
+	@Override
+	public void add(final int x, final int y, final double weight) {
+		final int b = (y >> BLOCK_SHIFT) * m_numBlocksX + (x >> BLOCK_SHIFT);
+		float[] block = m_blocks[b];
+		if (block == null) {
+			block = new float[BLOCK_SIZE * BLOCK_SIZE];
+			m_blocks[b] = block;
+		}
+		final int i = ((y & BLOCK_MASK) << BLOCK_SHIFT) + (x & BLOCK_MASK);
+		block[i] = (float) (block[i] + weight);
+	}
+
+	/**
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return the sum of the votes at the given position
+	 */
+	public float get(final int x, final int y) {
+		final float[] block = m_blocks[(y >> BLOCK_SHIFT) * m_numBlocksX + (x >> BLOCK_SHIFT)];
+		return block == null ? 0 : block[((y & BLOCK_MASK) << BLOCK_SHIFT) + (x & BLOCK_MASK)];
+	}
+
+	/**
+	 * @return the number of allocated blocks
+	 */
+	public int getNumAllocatedBlocks() {
+		int numAllocated = 0;
+		for (final float[] block : m_blocks) {
+			if (block != null) {
+				numAllocated++;
+			}
+		}
+		return numAllocated;
+	}
+
+	/**
+	 * Adds other votes of the same size to these votes.
+	 *
+	 * @param votes the votes to add
+	 */
+	public void add(final SparseVotes votes) {
+		for (int b = 0; b < m_blocks.length; b++) {
+			final float[] other = votes.m_blocks[b];
+			if (other != null) {
+				if (m_blocks[b] == null) {
+					m_blocks[b] = other.clone();
+				} else {
+					final float[] block = m_blocks[b];
+					for (int i = 0; i < block.length; i++) {
+						block[i] += other[i];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc} Only the allocated blocks are visited.
+	 */
+	@Override
+	public void addTo(final RandomAccessibleInterval<FloatType> votes) {
+		if (votes instanceof SparseVotes) {
+			((SparseVotes) votes).add(this);
+			return;
+		}
+		final RandomAccess<FloatType> raVotes = votes.randomAccess();
+		for (int b = 0; b < m_blocks.length; b++) {
+			final float[] block = m_blocks[b];
+			if (block == null) {
+				continue;
+			}
+			final int minX = (b % m_numBlocksX) << BLOCK_SHIFT;
+			final int minY = (b / m_numBlocksX) << BLOCK_SHIFT;
+			for (int y = minY; y < Math.min(minY + BLOCK_SIZE, m_height); y++) {
+				raVotes.setPosition(votes.min(1) + y, 1);
+				for (int x = minX; x < Math.min(minX + BLOCK_SIZE, m_width); x++) {
+					raVotes.setPosition(votes.min(0) + x, 0);
+					final FloatType vote = raVotes.get();
+					vote.set(vote.get() + block[((y - minY) << BLOCK_SHIFT) + x - minX]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Blurs the votes with the Gaussian kernel of {@link VoteSmoothing#getKernel(double)}. Pixels outside of the votes
+	 * are treated as zero.
+	 *
+	 * @param sigma sigma of the Gaussian in x and y direction
+	 * @return the blurred votes
+	 */
+	public SparseVotes gauss(final double sigma) {
+		final float[] kernel = VoteSmoothing.getKernel(sigma);
+		return convolve(kernel, true).convolve(kernel, false);
+	}
+
+	/**
+	 * Blurs the votes of several scales with a Gaussian in x and y direction and across the scales. Pixels outside of
+	 * the votes are treated as zero.
+	 *
+	 * @param scales the votes of each scale
+	 * @param sigmaXY sigma of the Gaussian in x and y direction
+	 * @param sigmaZ sigma of the Gaussian across the scales
+	 * @return the blurred votes of each scale
+	 */
+	public static List<SparseVotes> gauss(final List<SparseVotes> scales, final double sigmaXY, final double sigmaZ) {
+		final List<SparseVotes> blurredXY = new ArrayList<>(scales.size());
+		for (final SparseVotes votes : scales) {
+			blurredXY.add(votes.gauss(sigmaXY));
+		}
+		final float[] kernel = VoteSmoothing.getKernel(sigmaZ);
+		final int radius = kernel.length / 2;
+		final List<SparseVotes> blurred = new ArrayList<>(scales.size());
+		for (int z = 0; z < scales.size(); z++) {
+			final SparseVotes votes = new SparseVotes(scales.get(z).m_width, scales.get(z).m_height);
+			for (int k = -radius; k <= radius; k++) {
+				if (z + k >= 0 && z + k < scales.size()) {
+					votes.add(blurredXY.get(z + k), kernel[k + radius]);
+				}
+			}
+			blurred.add(votes);
+		}
+		return blurred;
+	}
+
+	/**
+	 * Searches the position of the maximum of the votes of several scales. Only the allocated blocks are visited. Of
+	 * several equal maxima, the first in the order of a flat iteration is returned.
+	 *
+	 * @param scales the votes of each scale
+	 * @return the position of the maximum, which has a third coordinate for the scale if more than one scale is given
+	 */
+	public static int[] getMaxPosition(final List<SparseVotes> scales) {
+		final int[] maxPos = new int[scales.size() > 1 ? 3 : 2];
+		// unallocated pixels are zero, the first of them comes not later than the origin
+		float max = 0;
+		for (int z = 0; z < scales.size(); z++) {
+			final SparseVotes votes = scales.get(z);
+			for (int b = 0; b < votes.m_blocks.length; b++) {
+				final float[] block = votes.m_blocks[b];
+				if (block == null) {
+					continue;
+				}
+				final int minX = (b % votes.m_numBlocksX) << BLOCK_SHIFT;
+				final int minY = (b / votes.m_numBlocksX) << BLOCK_SHIFT;
+				for (int y = minY; y < Math.min(minY + BLOCK_SIZE, votes.m_height); y++) {
+					for (int x = minX; x < Math.min(minX + BLOCK_SIZE, votes.m_width); x++) {
+						final float value = block[((y - minY) << BLOCK_SHIFT) + x - minX];
+						if (value > max || (value == max && isBefore(x, y, z, maxPos))) {
+							max = value;
+							maxPos[0] = x;
+							maxPos[1] = y;
+							if (maxPos.length > 2) {
+								maxPos[2] = z;
+							}
+						}
+					}
+				}
+			}
+		}
+		return maxPos;
+	}
+
+	// true, if (x, y, z) comes before pos in a flat iteration
+	private static boolean isBefore(final int x, final int y, final int z, final int[] pos) {
+		if (pos.length > 2 && z != pos[2]) {
+			return z < pos[2];
+		}
+		return y != pos[1] ? y < pos[1] : x < pos[0];
+	}
+
+	// adds the given votes multiplied by a factor
+	private void add(final SparseVotes votes, final float factor) {
+		for (int b = 0; b < m_blocks.length; b++) {
+			final float[] other = votes.m_blocks[b];
+			if (other != null) {
+				if (m_blocks[b] == null) {
+					m_blocks[b] = new float[BLOCK_SIZE * BLOCK_SIZE];
+				}
+				final float[] block = m_blocks[b];
+				for (int i = 0; i < block.length; i++) {
+					block[i] += factor * other[i];
+				}
+			}
+		}
+	}
+
+	// convolves in x or y direction, only the blocks within the radius of the kernel around allocated blocks are
+	// computed
+	private SparseVotes convolve(final float[] kernel, final boolean horizontal) {
+		final int radius = kernel.length / 2;
+		final SparseVotes result = new SparseVotes(m_width, m_height);
+		if (radius == 0) {
+			result.add(this);
+			return result;
+		}
+		final int numBlocksY = m_blocks.length / m_numBlocksX;
+		final int reach = (radius + BLOCK_MASK) >> BLOCK_SHIFT;
+		final boolean[] isReached = new boolean[m_blocks.length];
+		for (int b = 0; b < m_blocks.length; b++) {
+			if (m_blocks[b] == null) {
+				continue;
+			}
+			final int bx = b % m_numBlocksX;
+			final int by = b / m_numBlocksX;
+			for (int r = -reach; r <= reach; r++) {
+				if (horizontal && bx + r >= 0 && bx + r < m_numBlocksX) {
+					isReached[b + r] = true;
+				} else if (!horizontal && by + r >= 0 && by + r < numBlocksY) {
+					isReached[b + r * m_numBlocksX] = true;
+				}
+			}
+		}
+		for (int b = 0; b < m_blocks.length; b++) {
+			if (!isReached[b]) {
+				continue;
+			}
+			final float[] block = new float[BLOCK_SIZE * BLOCK_SIZE];
+			final int minX = (b % m_numBlocksX) << BLOCK_SHIFT;
+			final int minY = (b / m_numBlocksX) << BLOCK_SHIFT;
+			for (int y = minY; y < Math.min(minY + BLOCK_SIZE, m_height); y++) {
+				for (int x = minX; x < Math.min(minX + BLOCK_SIZE, m_width); x++) {
+					double sum = 0;
+					for (int k = -radius; k <= radius; k++) {
+						final int posX = horizontal ? x + k : x;
+						final int posY = horizontal ? y : y + k;
+						if (posX >= 0 && posX < m_width && posY >= 0 && posY < m_height) {
+							sum += kernel[k + radius] * get(posX, posY);
+						}
+					}
+					block[((y - minY) << BLOCK_SHIFT) + x - minX] = (float) sum;
+				}
+			}
+			result.m_blocks[b] = block;
+		}
+		return result;
+	}
+
+	@Override
+	public RandomAccess<FloatType> randomAccess() {
+		return new SparseVotesRandomAccess();
+	}
+
+	@Override
+	public RandomAccess<FloatType> randomAccess(final Interval interval) {
+		return randomAccess();
+	}
+
+	/**
+	 * Read-only access to the votes.
+	 */
+	private final class SparseVotesRandomAccess extends Point implements RandomAccess<FloatType> {
+
+		private final FloatType m_value = new FloatType();
+
+		SparseVotesRandomAccess() {
+			super(2);
+		}
+
+		@Override
+		public FloatType get() {
+			m_value.set(SparseVotes.this.get((int) position[0], (int) position[1]));
+			return m_value;
+		}
+
+		@Override
+		public SparseVotesRandomAccess copy() {
+			final SparseVotesRandomAccess copy = new SparseVotesRandomAccess();
+			copy.setPosition(this);
+			return copy;
+		}
+
+		@Override
+		public SparseVotesRandomAccess copyRandomAccess() {
+			return copy();
+		}
+	}
+}
@@ -0,0 +1,471 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.forest.prediction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+/**
+ * Smooths votes with a Gaussian by separable 1D passes, one for each dimension. The passes are either convolutions
+ * with a kernel truncated at three sigma or, in x and y direction, the recursive filter of Young and van Vliet, whose
+ * cost does not depend on sigma. A convolution is computed by FFTs if the kernel is large compared to the lines. The
+ * lines of a pass are smoothed in parallel. Kernels, filter coefficients, FFT plans and the transformed kernels are
+ * cached. Pixels outside of the votes are treated as zero.
+ *
+ * @author Simon Schmid, University of Konstanz
+ */
+public final class VoteSmoothing {
+
+	/**
+	 * The method used to smooth the votes.
+	 */
+	public enum Method {
+		/** The votes are convolved with a Gaussian kernel by ImageJ Ops. */
+		CONVOLUTION("Convolution"),
+		/** The votes are convolved with a 1D Gaussian kernel in each dimension. */
+		SEPARABLE("Separable"),
+		/** The votes are smoothed with a recursive filter in x and y direction. */
+		RECURSIVE("Recursive (Young-van Vliet)");
+
+		private final String m_name;
+
+		private Method(final String name) {
+			m_name = name;
+		}
+
+		/**
+		 * @return the name of the method as shown in the dialog
+		 */
+		public String getName() {
+			return m_name;
+		}
+
+		/**
+		 * @return the names of all methods
+		 */
+		public static String[] getNames() {
+			final Method[] values = values();
+			final String[] names = new String[values.length];
+			for (int i = 0; i < values.length; i++) {
+				names[i] = values[i].getName();
+			}
+			return names;
+		}
+
+		/**
+		 * @param name the name of a method
+		 * @return the method with the given name
+		 */
+		public static Method fromName(final String name) {
+			for (final Method method : values()) {
+				if (method.getName().equals(name)) {
+					return method;
+				}
+			}
+			throw new IllegalArgumentException("Unknown vote smoothing: " + name);
+		}
+	}
+
+	// the recursive filter is only accurate for larger sigmas
+	private static final double MIN_SIGMA_RECURSIVE = 1.0;
+
+	private static final Map<Double, float[]> KERNELS = new ConcurrentHashMap<>();
+
+	private static final Map<Double, double[]> COEFFICIENTS = new ConcurrentHashMap<>();
+
+	// a convolution is computed by FFTs if the kernel is longer than this factor times the logarithm of the FFT size
+	private static final double FFT_FACTOR = 4;
+
+	private static final Map<Integer, FftPlan> FFT_PLANS = new ConcurrentHashMap<>();
+
+	// transformed kernels by sigma and FFT size
+	private static final Map<String, double[]> SPECTRA = new ConcurrentHashMap<>();
+
+	private VoteSmoothing() {
+		// utility class
+	}
+
+	/**
+	 * Returns the normalized Gaussian kernel with a radius of three sigma, but at least one.
+	 *
+	 * @param sigma sigma of the Gaussian, the kernel is {1} if it is not positive
+	 * @return the kernel, which must not be modified
+	 */
+	public static float[] getKernel(final double sigma) {
+		return KERNELS.computeIfAbsent(sigma, VoteSmoothing::createKernel);
+	}
+
+	private static float[] createKernel(final double sigma) {
+		if (sigma <= 0) {
+			return new float[] { 1 };
+		}
+		final int radius = Math.max(1, (int) (3 * sigma + 0.5));
+		final float[] kernel = new float[2 * radius + 1];
+		double sum = 0;
+		for (int i = -radius; i <= radius; i++) {
+			sum += Math.exp(-0.5 * i * i / (sigma * sigma));
+		}
+		for (int i = -radius; i <= radius; i++) {
+			kernel[i + radius] = (float) (Math.exp(-0.5 * i * i / (sigma * sigma)) / sum);
+		}
+		return kernel;
+	}
+
+	// B, b1 / b0, b2 / b0 and b3 / b0 of Young and van Vliet, "Recursive implementation of the Gaussian filter", 1995,
+	// followed by the number of zeros after a line into which the causal pass is continued
+	private static double[] createCoefficients(final double sigma) {
+		final double q = sigma >= 2.5 ? 0.98711 * sigma - 0.96330
+				: 3.97156 - 4.14554 * Math.sqrt(1 - 0.26891 * sigma);
+		final double q2 = q * q;
+		final double q3 = q2 * q;
+		final double b0 = 1.57825 + 2.44413 * q + 1.4281 * q2 + 0.422205 * q3;
+		final double b1 = 2.44413 * q + 2.85619 * q2 + 1.26661 * q3;
+		final double b2 = -(1.4281 * q2 + 1.26661 * q3);
+		final double b3 = 0.422205 * q3;
+		return new double[] { 1 - (b1 + b2 + b3) / b0, b1 / b0, b2 / b0, b3 / b0, Math.ceil(4 * sigma) };
+	}
+
+	/**
+	 * Smooths the votes.
+	 *
+	 * @param votes the votes
+	 * @param sigmas sigma of the Gaussian for each dimension of the votes
+	 * @param recursive if the recursive filter should be used in x and y direction
+	 * @param es executor service used to smooth the lines of a pass in parallel, may be null
+	 * @return the smoothed votes
+	 */
+	public static RandomAccessibleInterval<FloatType> smooth(final RandomAccessibleInterval<FloatType> votes,
+			final double[] sigmas, final boolean recursive, final ExecutorService es) {
+		final long[] dims = Intervals.dimensionsAsLongArray(votes);
+		final ArrayImg<FloatType, FloatArray> result = ArrayImgs.floats(dims);
+		final float[] data = result.update(null).getCurrentStorageArray();
+		final Cursor<FloatType> cursor = Views.flatIterable(votes).cursor();
+		for (int i = 0; i < data.length; i++) {
+			data[i] = cursor.next().get();
+		}
+		int stride = 1;
+		for (int d = 0; d < dims.length; d++) {
+			final int length = (int) dims[d];
+			if (sigmas[d] > 0) {
+				if (recursive && d < 2 && sigmas[d] >= MIN_SIGMA_RECURSIVE) {
+					smoothLines(data, length, stride, null,
+							COEFFICIENTS.computeIfAbsent(sigmas[d], VoteSmoothing::createCoefficients), null, es);
+				} else {
+					final float[] kernel = getKernel(sigmas[d]);
+					smoothLines(data, length, stride, kernel, null, getSpectrum(sigmas[d], kernel, length), es);
+				}
+			}
+			stride *= length;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the transformed kernel used to convolve lines of the given length by FFTs, if this is faster than the
+	 * direct convolution. Since the kernel is symmetric, its transform is real. It is already divided by the FFT size.
+	 *
+	 * @return the transformed kernel or null if the lines should be convolved directly
+	 */
+	private static double[] getSpectrum(final double sigma, final float[] kernel, final int length) {
+		final int radius = kernel.length / 2;
+		// the zeros after the line must separate its end from its start in the cyclic convolution
+		final int size = Integer.highestOneBit(Math.max(1, length + radius - 1)) << 1;
+		if (kernel.length <= FFT_FACTOR * Integer.numberOfTrailingZeros(size)) {
+			return null;
+		}
+		return SPECTRA.computeIfAbsent(sigma + "/" + size, k -> {
+			final double[] re = new double[size];
+			final double[] im = new double[size];
+			for (int i = 0; i <= radius; i++) {
+				re[i] = kernel[radius + i] / (double) size;
+				re[(size - i) % size] = kernel[radius - i] / (double) size;
+			}
+			getFftPlan(size).transform(re, im, false);
+			return re;
+		});
+	}
+
+	private static FftPlan getFftPlan(final int size) {
+		return FFT_PLANS.computeIfAbsent(size, FftPlan::new);
+	}
+
+	private static void smoothLines(final float[] data, final int length, final int stride, final float[] kernel,
+			final double[] coefficients, final double[] spectrum, final ExecutorService es) {
+		final int numLines = data.length / length;
+		if (es == null) {
+			new SmoothLines(data, length, stride, kernel, coefficients, spectrum, 0, numLines).call();
+			return;
+		}
+		final int numBatches = Math.min(numLines, Runtime.getRuntime().availableProcessors());
+		// an even batch size, since the FFT transforms two lines at once
+		final int batchSize = ((numLines + numBatches - 1) / numBatches + 1) & ~1;
+		final List<SmoothLines> batches = new ArrayList<>(numBatches);
+		for (int from = 0; from < numLines; from += batchSize) {
+			batches.add(new SmoothLines(data, length, stride, kernel, coefficients, spectrum, from,
+					Math.min(from + batchSize, numLines)));
+		}
+		try {
+			for (final Future<Void> future : es.invokeAll(batches)) {
+				future.get();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (final ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Smooths a range of the lines along one dimension.
+	 */
+	private static final class SmoothLines implements Callable<Void> {
+
+		private final float[] m_data;
+		private final int m_length;
+		private final int m_stride;
+		private final float[] m_kernel;
+		private final double[] m_coefficients;
+		private final double[] m_spectrum;
+		private final int m_from;
+		private final int m_to;
+
+		SmoothLines(final float[] data, final int length, final int stride, final float[] kernel,
+				final double[] coefficients, final double[] spectrum, final int from, final int to) {
+			m_data = data;
+			m_length = length;
+			m_stride = stride;
+			m_kernel = kernel;
+			m_coefficients = coefficients;
+			m_spectrum = spectrum;
+			m_from = from;
+			m_to = to;
+		}
+
+		@Override
+		public Void call() {
+			if (m_spectrum != null) {
+				convolveFft();
+				return null;
+			}
+			final int tail = m_coefficients == null ? 0 : (int) m_coefficients[4];
+			final double[] line = new double[m_length];
+			final double[] smoothed = new double[m_length + tail];
+			for (int l = m_from; l < m_to; l++) {
+				final int start = getStart(l);
+				for (int k = 0; k < m_length; k++) {
+					line[k] = m_data[start + k * m_stride];
+				}
+				if (m_kernel != null) {
+					convolve(line, smoothed);
+				} else {
+					filterRecursive(line, smoothed);
+				}
+				for (int k = 0; k < m_length; k++) {
+					m_data[start + k * m_stride] = (float) smoothed[k];
+				}
+			}
+			return null;
+		}
+
+		// index of the first element of a line
+		private int getStart(final int line) {
+			return (line / m_stride) * m_stride * m_length + line % m_stride;
+		}
+
+		// convolves two lines at once, one as real and one as imaginary part, since the kernel is real
+		private void convolveFft() {
+			final FftPlan plan = getFftPlan(m_spectrum.length);
+			final double[] re = new double[m_spectrum.length];
+			final double[] im = new double[m_spectrum.length];
+			for (int l = m_from; l < m_to; l += 2) {
+				final int start1 = getStart(l);
+				final int start2 = l + 1 < m_to ? getStart(l + 1) : -1;
+				Arrays.fill(re, 0);
+				Arrays.fill(im, 0);
+				for (int k = 0; k < m_length; k++) {
+					re[k] = m_data[start1 + k * m_stride];
+					if (start2 >= 0) {
+						im[k] = m_data[start2 + k * m_stride];
+					}
+				}
+				plan.transform(re, im, false);
+				for (int i = 0; i < m_spectrum.length; i++) {
+					re[i] *= m_spectrum[i];
+					im[i] *= m_spectrum[i];
+				}
+				plan.transform(re, im, true);
+				for (int k = 0; k < m_length; k++) {
+					m_data[start1 + k * m_stride] = (float) re[k];
+					if (start2 >= 0) {
+						m_data[start2 + k * m_stride] = (float) im[k];
+					}
+				}
+			}
+		}
+
+		private void convolve(final double[] line, final double[] smoothed) {
+			final int radius = m_kernel.length / 2;
+			for (int k = 0; k < m_length; k++) {
+				double sum = 0;
+				for (int i = Math.max(-radius, -k); i <= Math.min(radius, m_length - 1 - k); i++) {
+					sum += m_kernel[i + radius] * line[k + i];
+				}
+				smoothed[k] = sum;
+			}
+		}
+
+		private void filterRecursive(final double[] line, final double[] smoothed) {
+			final double b = m_coefficients[0];
+			final double b1 = m_coefficients[1];
+			final double b2 = m_coefficients[2];
+			final double b3 = m_coefficients[3];
+			// causal pass, the values before the line are zero, it is continued after the line until the response of
+			// the last values decayed
+			double w1 = 0;
+			double w2 = 0;
+			double w3 = 0;
+			for (int k = 0; k < smoothed.length; k++) {
+				final double w = b * (k < m_length ? line[k] : 0) + b1 * w1 + b2 * w2 + b3 * w3;
+				smoothed[k] = w;
+				w3 = w2;
+				w2 = w1;
+				w1 = w;
+			}
+			// anti-causal pass
+			w1 = 0;
+			w2 = 0;
+			w3 = 0;
+			for (int k = smoothed.length - 1; k >= 0; k--) {
+				final double w = b * smoothed[k] + b1 * w1 + b2 * w2 + b3 * w3;
+				smoothed[k] = w;
+				w3 = w2;
+				w2 = w1;
+				w1 = w;
+			}
+		}
+	}
+
+	/**
+	 * Precomputed twiddle factors and bit reversal of an in-place radix-2 FFT of a fixed size.
+	 */
+	private static final class FftPlan {
+
+		private final int m_size;
+		private final double[] m_cos;
+		private final double[] m_sin;
+		private final int[] m_reversed;
+
+		FftPlan(final int size) {
+			m_size = size;
+			m_cos = new double[size / 2];
+			m_sin = new double[size / 2];
+			for (int k = 0; k < size / 2; k++) {
+				m_cos[k] = Math.cos(2 * Math.PI * k / size);
+				m_sin[k] = Math.sin(2 * Math.PI * k / size);
+			}
+			m_reversed = new int[size];
+			final int bits = Integer.numberOfTrailingZeros(size);
+			for (int i = 0; i < size; i++) {
+				m_reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+			}
+		}
+
+		/**
+		 * Transforms in place, the inverse transform is not divided by the size.
+		 */
+		void transform(final double[] re, final double[] im, final boolean inverse) {
+			for (int i = 0; i < m_size; i++) {
+				final int j = m_reversed[i];
+				if (i < j) {
+					double tmp = re[i];
+					re[i] = re[j];
+					re[j] = tmp;
+					tmp = im[i];
+					im[i] = im[j];
+					im[j] = tmp;
+				}
+			}
+			for (int length = 2; length <= m_size; length <<= 1) {
+				final int half = length / 2;
+				final int step = m_size / length;
+				for (int start = 0; start < m_size; start += length) {
+					for (int k = 0; k < half; k++) {
+						final double cos = m_cos[k * step];
+						final double sin = inverse ? m_sin[k * step] : -m_sin[k * step];
+						final int a = start + k;
+						final int b = a + half;
+						final double re2 = re[b] * cos - im[b] * sin;
+						final double im2 = re[b] * sin + im[b] * cos;
+						re[b] = re[a] - re2;
+						im[b] = im[a] - im2;
+						re[a] += re2;
+						im[a] += im2;
+					}
+				}
+			}
+		}
+	}
+}
@@ -50,7 +50,9 @@ package org.knime.knip.hough.forest.split;
 
 import java.util.Random;
 
-import org.knime.knip.hough.forest.node.Node;
+import org.knime.knip.hough.forest.node.HeapIndices;
+import org.knime.knip.hough.forest.training.NodeGrid;
+import org.knime.knip.hough.forest.training.NodeTable;
 import org.knime.knip.hough.forest.training.PatchObject;
 import org.knime.knip.hough.nodes.learner.HoughForestLearnerConfig;
 
@@ -86,31 +88,41 @@ public final class AncestorNodePairSplitFunction extends EntangledSplitFunction
 	@Override
 	public <T extends RealType<T>> Split apply(final PatchObject<T> pObj, final int treeIdx, final int[] stride) {
 		final int[] position = pObj.getPosition();
-		final int[] positionProbe1 = getPos(position, m_offset1, stride);
-		final int[] positionProbe2 = getPos(position, m_offset2, stride);
-		if (pObj.isPosInGridInterval(positionProbe1) && pObj.isPosInGridInterval(positionProbe2)) {
-			Node nodeProbe1 = pObj.getNodeGrid()[treeIdx][positionProbe1[0]][positionProbe1[1]];
-			Node nodeProbe2 = pObj.getNodeGrid()[treeIdx][positionProbe2[0]][positionProbe2[1]];
+		final int x1 = getPos(position[0], m_offset1[0], stride, 0);
+		final int y1 = getPos(position[1], m_offset1[1], stride, 1);
+		final int x2 = getPos(position[0], m_offset2[0], stride, 0);
+		final int y2 = getPos(position[1], m_offset2[1], stride, 1);
+		if (pObj.isPosInGridInterval(x1, y1) && pObj.isPosInGridInterval(x2, y2)) {
+			final NodeGrid nodeGrid = pObj.getNodeGrid();
+			final NodeTable nodes = nodeGrid.getNodeTable(treeIdx);
+			int nodeProbe1 = nodeGrid.getNodeId(treeIdx, x1, y1);
+			int nodeProbe2 = nodeGrid.getNodeId(treeIdx, x2, y2);
+			if (nodes.getDepth(nodeProbe1) <= HeapIndices.MAX_DEPTH
+					&& nodes.getDepth(nodeProbe2) <= HeapIndices.MAX_DEPTH) {
+				return isLeft(nodes.getNodeIdx(nodeProbe1), nodes.getNodeIdx(nodeProbe2), m_threshold) ? Split.LEFT
+						: Split.RIGHT;
+			}
+			// the index of a node has overflowed, follow the parents
 			int counter = 0;
 			// take both nodes onto the same depth level (may be different, if one of the nodes is a leaf)
-			int d = nodeProbe1.getDepth() - nodeProbe2.getDepth();
+			int d = nodes.getDepth(nodeProbe1) - nodes.getDepth(nodeProbe2);
 			if (d > 0) {
 				// nodeProbe2 is leaf node
 				counter = d;
 				for (; d != 0; d--) {
-					nodeProbe1 = nodeProbe1.getParent();
+					nodeProbe1 = nodes.getParent(nodeProbe1);
 				}
 			} else if (d < 0) {
 				// nodeProbe1 is leaf node
 				counter = d * (-1);
 				for (; d != 0; d++) {
-					nodeProbe2 = nodeProbe2.getParent();
+					nodeProbe2 = nodes.getParent(nodeProbe2);
 				}
 			}
 			// go upwards until both nodes meet
-			while (nodeProbe1.getParent() != null) {
-				nodeProbe1 = nodeProbe1.getParent();
-				nodeProbe2 = nodeProbe2.getParent();
+			while (nodes.getParent(nodeProbe1) != -1) {
+				nodeProbe1 = nodes.getParent(nodeProbe1);
+				nodeProbe2 = nodes.getParent(nodeProbe2);
 				if (nodeProbe1 == nodeProbe2) {
 					return Split.LEFT;
 				}
@@ -125,6 +137,31 @@ public final class AncestorNodePairSplitFunction extends EntangledSplitFunction
 		return Split.RIGHT;
 	}
 
+	/**
+	 * Decides the split for the nodes reached by the two probes on their node indices by {@link HeapIndices}, which
+	 * gives the same result as following their parents. Only valid, if the nodes are not deeper than
+	 * {@link HeapIndices#MAX_DEPTH}.
+	 * 
+	 * @param nodeIdx1 the index of the node reached by the first probe
+	 * @param nodeIdx2 the index of the node reached by the second probe
+	 * @param threshold the threshold of the split function
+	 * @return true, if the probe is passed to the left child
+	 */
+	public static boolean isLeft(final int nodeIdx1, final int nodeIdx2, final int threshold) {
+		final int depth1 = HeapIndices.getDepth(nodeIdx1);
+		final int depth2 = HeapIndices.getDepth(nodeIdx2);
+		final int depth = Math.min(depth1, depth2);
+		if (depth == 0) {
+			return false;
+		}
+		// taking both nodes onto the same depth level counts as passed levels
+		final int d = Math.max(depth1, depth2) - depth;
+		final int levels = Math.max(1, HeapIndices.getLevelsToCommonAncestor(
+				HeapIndices.getAncestor(nodeIdx1, depth1 - depth), HeapIndices.getAncestor(nodeIdx2, depth2 - depth)));
+		// the threshold is checked after each level the nodes did not meet
+		return levels == 1 || d + levels - 1 <= threshold;
+	}
+
 	public static AncestorNodePairSplitFunction createRandom(final HoughForestLearnerConfig config, final int depth,
 			final Random random) {
 		return new AncestorNodePairSplitFunction(config.createRandomOffset(random), config.createRandomOffset(random),
@@ -165,4 +202,18 @@ public final class AncestorNodePairSplitFunction extends EntangledSplitFunction
 		return m_threshold;
 	}
 
+	/**
+	 * @return the offset of the first probe
+	 */
+	public int[] getOffset1() {
+		return m_offset1;
+	}
+
+	/**
+	 * @return the offset of the second probe
+	 */
+	public int[] getOffset2() {
+		return m_offset2;
+	}
+
 }
@@ -55,7 +55,6 @@ import org.knime.knip.hough.forest.training.PatchObject;
 import org.knime.knip.hough.forest.training.TrainingObject;
 import org.knime.knip.hough.nodes.learner.HoughForestLearnerConfig;
 
-import net.imglib2.RandomAccess;
 import net.imglib2.type.numeric.RealType;
 
 /**
@@ -93,17 +92,17 @@ public final class DefaultSplitFunction implements SplitFunction {
 
 	@Override
 	public <T extends RealType<T>> Split apply(final PatchObject<T> pObj, final int treeIdx, final int[] stride) {
-		final RandomAccess<T> raPatch = pObj.getRandomAccess(treeIdx);
-		final int[] min = pObj.getMin();
-		raPatch.setPosition(new int[] { min[0] + m_indices[0][0], min[1] + m_indices[0][1], m_indices[0][2] });
-		final float value1 = raPatch.get().getRealFloat();
-		raPatch.setPosition(new int[] { min[0] + m_indices[1][0], min[1] + m_indices[1][1], m_indices[1][2] });
-		final float value2 = raPatch.get().getRealFloat();
+		final float value1 = getValue(pObj, treeIdx, m_indices[0]);
+		final float value2 = getValue(pObj, treeIdx, m_indices[1]);
 		if (value1 - value2 < m_threshold)
 			return Split.LEFT;
 		return Split.RIGHT;
 	}
 
+	static float getValue(final PatchObject<?> pObj, final int treeIdx, final int[] indices) {
+		return pObj.getValue(treeIdx, indices[0], indices[1], indices[2]);
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -138,4 +137,18 @@ public final class DefaultSplitFunction implements SplitFunction {
 		return "Default";
 	}
 
+	/**
+	 * @return the indices
+	 */
+	public int[][] getIndices() {
+		return m_indices;
+	}
+
+	/**
+	 * @return the threshold
+	 */
+	public double getThreshold() {
+		return m_threshold;
+	}
+
 }
@@ -55,7 +55,6 @@ import org.knime.knip.hough.forest.training.PatchObject;
 import org.knime.knip.hough.forest.training.TrainingObject;
 import org.knime.knip.hough.nodes.learner.HoughForestLearnerConfig;
 
-import net.imglib2.RandomAccess;
 import net.imglib2.type.numeric.RealType;
 
 /**
@@ -99,16 +98,13 @@ public final class EntangledDefaultSplitFunction extends EntangledSplitFunction
 	@Override
 	public <T extends RealType<T>> Split apply(final PatchObject<T> pObj, final int treeIdx, final int[] stride) {
 		final int[] position = pObj.getPosition();
-		final int[] position_probe = getPos(position, m_offset, stride);
-		if (pObj.isPosInGridInterval(position_probe)) {
+		final int x = getPos(position[0], m_offset[0], stride, 0);
+		final int y = getPos(position[1], m_offset[1], stride, 1);
+		if (pObj.isPosInGridInterval(x, y)) {
 			@SuppressWarnings("unchecked")
-			final PatchObject<T> pObjProbe = pObj.getGrid()[position_probe[0]][position_probe[1]];
-			final RandomAccess<T> raPatch = pObjProbe.getRandomAccess(treeIdx);
-			final int[] min = pObjProbe.getMin();
-			raPatch.setPosition(new int[] { min[0] + m_indices[0][0], min[1] + m_indices[0][1], m_indices[0][2] });
-			final float value1 = raPatch.get().getRealFloat();
-			raPatch.setPosition(new int[] { min[0] + m_indices[1][0], min[1] + m_indices[1][1], m_indices[1][2] });
-			final float value2 = raPatch.get().getRealFloat();
+			final PatchObject<T> pObjProbe = pObj.getGrid()[x][y];
+			final float value1 = DefaultSplitFunction.getValue(pObjProbe, treeIdx, m_indices[0]);
+			final float value2 = DefaultSplitFunction.getValue(pObjProbe, treeIdx, m_indices[1]);
 			if (value1 - value2 < m_threshold)
 				return Split.LEFT;
 		}
@@ -150,4 +146,25 @@ public final class EntangledDefaultSplitFunction extends EntangledSplitFunction
 		return "EntangledDefault";
 	}
 
+	/**
+	 * @return the offset
+	 */
+	public int[] getOffset() {
+		return m_offset;
+	}
+
+	/**
+	 * @return the indices
+	 */
+	public int[][] getIndices() {
+		return m_indices;
+	}
+
+	/**
+	 * @return the threshold
+	 */
+	public double getThreshold() {
+		return m_threshold;
+	}
+
 }
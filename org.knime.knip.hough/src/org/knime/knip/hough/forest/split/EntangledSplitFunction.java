@@ -71,16 +71,21 @@ abstract class EntangledSplitFunction implements SplitFunction {
 		m_stride = stride;
 	}
 
-	protected int[] getPos(final int[] position, final int[] offset, final int[] stride) {
-		final int[] position2;
+	/**
+	 * Computes the position of a probe in one dimension.
+	 * 
+	 * @param position position of the patch in the grid
+	 * @param offset offset of the probe
+	 * @param stride stride of the grid, if null the stride used for learning is assumed
+	 * @param d the dimension
+	 * @return position of the probe in the grid
+	 */
+	protected int getPos(final int position, final int offset, final int[] stride, final int d) {
 		if (stride == null) {
-			position2 = new int[] { position[0] + offset[0], position[1] + offset[1] };
-		} else {
-			// adapt offset to be image size relative, not grid size relative
-			position2 = new int[] { position[0] + (int) Math.round((((double) offset[0] * m_stride[0]) / stride[0])),
-					position[1] + (int) Math.round((((double) offset[1] * m_stride[1]) / stride[1])) };
+			return position + offset;
 		}
-		return position2;
+		// adapt offset to be image size relative, not grid size relative
+		return position + (int) Math.round((((double) offset * m_stride[d]) / stride[d]));
 	}
 
 	@Override
@@ -105,4 +110,11 @@ abstract class EntangledSplitFunction implements SplitFunction {
 		return true;
 	}
 
+	/**
+	 * @return the stride of the grid the function has been learned on
+	 */
+	public int[] getStride() {
+		return m_stride;
+	}
+
 }
@@ -50,7 +50,6 @@ package org.knime.knip.hough.forest.split;
 
 import java.util.Random;
 
-import org.knime.knip.hough.forest.node.Node;
 import org.knime.knip.hough.forest.training.PatchObject;
 import org.knime.knip.hough.nodes.learner.HoughForestLearnerConfig;
 
@@ -84,15 +83,11 @@ public final class MAPClassSplitFunction extends EntangledSplitFunction {
 	@Override
 	public <T extends RealType<T>> Split apply(final PatchObject<T> pObj, final int treeIdx, final int[] stride) {
 		final int[] position = pObj.getPosition();
-		final int[] position_probe = getPos(position, m_offset, stride);
+		final int x = getPos(position[0], m_offset[0], stride, 0);
+		final int y = getPos(position[1], m_offset[1], stride, 1);
 		final int clazz;
-		if (pObj.isPosInGridInterval(position_probe)) {
-			final Node node = pObj.getNodeGrid()[treeIdx][position_probe[0]][position_probe[1]];
-			if (node.getProbability(0) > node.getProbability(1)) {
-				clazz = 0;
-			} else {
-				clazz = 1;
-			}
+		if (pObj.isPosInGridInterval(x, y)) {
+			clazz = pObj.getNodeGrid().getMapClass(treeIdx, x, y);
 		} else {
 			clazz = 0;
 		}
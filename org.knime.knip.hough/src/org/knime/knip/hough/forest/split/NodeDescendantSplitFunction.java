@@ -50,7 +50,9 @@ package org.knime.knip.hough.forest.split;
 
 import java.util.Random;
 
-import org.knime.knip.hough.forest.node.Node;
+import org.knime.knip.hough.forest.node.HeapIndices;
+import org.knime.knip.hough.forest.training.NodeGrid;
+import org.knime.knip.hough.forest.training.NodeTable;
 import org.knime.knip.hough.forest.training.PatchObject;
 import org.knime.knip.hough.nodes.learner.HoughForestLearnerConfig;
 
@@ -84,12 +86,20 @@ public final class NodeDescendantSplitFunction extends EntangledSplitFunction {
 	@Override
 	public <T extends RealType<T>> Split apply(final PatchObject<T> pObj, final int treeIdx, final int[] stride) {
 		final int[] position = pObj.getPosition();
-		final int[] position_probe = getPos(position, m_offset, stride);
-		if (pObj.isPosInGridInterval(position_probe)) {
-			Node node = pObj.getNodeGrid()[treeIdx][position_probe[0]][position_probe[1]];
-			while (node.getParent() != null) {
-				node = node.getParent();
-				if (node.getNodeIdx() == m_nodeIdx) {
+		final int x = getPos(position[0], m_offset[0], stride, 0);
+		final int y = getPos(position[1], m_offset[1], stride, 1);
+		if (pObj.isPosInGridInterval(x, y)) {
+			final NodeGrid nodeGrid = pObj.getNodeGrid();
+			final NodeTable nodes = nodeGrid.getNodeTable(treeIdx);
+			int node = nodeGrid.getNodeId(treeIdx, x, y);
+			if (nodes.getDepth(node) <= HeapIndices.MAX_DEPTH) {
+				return HeapIndices.isDescendant(nodes.getNodeIdx(node), m_nodeIdx) ? Split.LEFT : Split.RIGHT;
+			}
+			// the index of the node has overflowed, follow the parents; the overflowed indices of the ancestors deeper
+			// than HeapIndices.MAX_DEPTH may equal the index of the split function and are skipped
+			while (nodes.getParent(node) != -1) {
+				node = nodes.getParent(node);
+				if (nodes.getDepth(node) <= HeapIndices.MAX_DEPTH && nodes.getNodeIdx(node) == m_nodeIdx) {
 					return Split.LEFT;
 				}
 			}
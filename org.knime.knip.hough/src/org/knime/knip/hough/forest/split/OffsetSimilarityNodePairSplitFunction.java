@@ -48,10 +48,12 @@
  */
 package org.knime.knip.hough.forest.split;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.Arrays;
 import java.util.Random;
 
-import org.knime.knip.hough.forest.node.Node;
+import org.knime.knip.hough.forest.training.NodeGrid;
 import org.knime.knip.hough.forest.training.PatchObject;
 import org.knime.knip.hough.nodes.learner.HoughForestLearnerConfig;
 
@@ -70,6 +72,8 @@ public final class OffsetSimilarityNodePairSplitFunction extends EntangledSplitF
 	protected final int[] m_offset2;
 	private final double m_threshold;
 	private final double m_sigma;
+	// exp(-d^2 / sigma^2) < threshold if and only if d^2 > -ln(threshold) * sigma^2
+	private transient double m_squaredDistanceThreshold;
 
 	/**
 	 * Creates a new {@link OffsetSimilarityNodePairSplitFunction}.
@@ -84,29 +88,45 @@ public final class OffsetSimilarityNodePairSplitFunction extends EntangledSplitF
 		m_offset2 = offset2;
 		m_threshold = threshold;
 		m_sigma = sigma;
+		m_squaredDistanceThreshold = getSquaredDistanceThreshold(threshold, sigma);
+	}
+
+	private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		m_squaredDistanceThreshold = getSquaredDistanceThreshold(m_threshold, m_sigma);
+	}
+
+	/**
+	 * Converts the threshold of the similarity of two offset means into a threshold of their squared distance, so
+	 * that the function can be evaluated without computing an exponential.
+	 * 
+	 * @param threshold the threshold of the similarity
+	 * @param sigma the sigma of the similarity
+	 * @return the squared distance above which two offset means are not similar
+	 */
+	public static double getSquaredDistanceThreshold(final double threshold, final double sigma) {
+		return -Math.log(threshold) * sigma * sigma;
 	}
 
 	@Override
 	public <T extends RealType<T>> Split apply(final PatchObject<T> pObj, final int treeIdx, final int[] stride) {
 		final int[] position = pObj.getPosition();
-		final int[] position_probe1 = getPos(position, m_offset1, stride);
-		final int[] position_probe2 = getPos(position, m_offset2, stride);
-		if (pObj.isPosInGridInterval(position_probe1) && pObj.isPosInGridInterval(position_probe2)) {
-			Node node1 = pObj.getNodeGrid()[treeIdx][position_probe1[0]][position_probe1[1]];
-			Node node2 = pObj.getNodeGrid()[treeIdx][position_probe2[0]][position_probe2[1]];
-			if (node1.getProbability(0) > 0.5 || node2.getProbability(0) > 0.5) {
+		final int x1 = getPos(position[0], m_offset1[0], stride, 0);
+		final int y1 = getPos(position[1], m_offset1[1], stride, 1);
+		final int x2 = getPos(position[0], m_offset2[0], stride, 0);
+		final int y2 = getPos(position[1], m_offset2[1], stride, 1);
+		if (pObj.isPosInGridInterval(x1, y1) && pObj.isPosInGridInterval(x2, y2)) {
+			final NodeGrid nodeGrid = pObj.getNodeGrid();
+			if (nodeGrid.isBackground(treeIdx, x1, y1) || nodeGrid.isBackground(treeIdx, x2, y2)) {
 				return Split.LEFT;
 			}
-			final double[] d1 = node1.getOffsetMean();
-			final double[] d2 = node2.getOffsetMean();
 			double v = 0;
-			for (int i = 0; i < d1.length; i++) {
-				final double diff = d1[i] - d2[i];
+			for (int i = 0; i < 2; i++) {
+				final double diff = nodeGrid.getOffsetMean(treeIdx, x1, y1, i)
+						- nodeGrid.getOffsetMean(treeIdx, x2, y2, i);
 				v += diff * diff;
 			}
-			v /= m_sigma * m_sigma;
-			double exp = Math.exp(0 - v);
-			if (exp < m_threshold) {
+			if (v > m_squaredDistanceThreshold) {
 				return Split.LEFT;
 			}
 		} else {
@@ -157,4 +177,32 @@ public final class OffsetSimilarityNodePairSplitFunction extends EntangledSplitF
 		return "Offset";
 	}
 
+	/**
+	 * @return the offset of the first probe
+	 */
+	public int[] getOffset1() {
+		return m_offset1;
+	}
+
+	/**
+	 * @return the offset of the second probe
+	 */
+	public int[] getOffset2() {
+		return m_offset2;
+	}
+
+	/**
+	 * @return the threshold
+	 */
+	public double getThreshold() {
+		return m_threshold;
+	}
+
+	/**
+	 * @return the sigma
+	 */
+	public double getSigma() {
+		return m_sigma;
+	}
+
 }
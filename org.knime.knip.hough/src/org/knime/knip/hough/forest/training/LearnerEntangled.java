@@ -102,14 +102,18 @@ public final class LearnerEntangled {
 	private static <T extends RealType<T>> Node trainBreadthFirst(final SampleTrainingObject<T> sample, final int depth,
 			final HoughForestLearnerConfig config, final SampleTrainingObject<T> trainingSet, final int treeIdx,
 			final ExecutionContext exec, final long seed) throws CanceledExecutionException {
+		// forget the nodes of a previous attempt to learn the tree
+		final NodeTable nodeTable = LearnerUtils.getNodeTable(treeIdx, trainingSet);
+		nodeTable.clear();
 		// learn root
 		final double[] classProbabilities = HoughForestUtils.computeClassProbabilities(
 				sample.getNumberElementsOfClazz0(), sample.getNumberElementsOfClazz1(), trainingSet);
 		final FrontierNode<T> rootNode = new FrontierNode<>(sample, trainingSet, depth, 0, null, true,
 				classProbabilities, new Random(seed).nextLong());
+		rootNode.setNodeId(nodeTable.add(rootNode, NodeTable.NO_PARENT));
 		List<FrontierNode<T>> frontierNodes = new ArrayList<>();
 		frontierNodes.add(rootNode);
-		frontierNodes = trainBreadthLevel(frontierNodes, trainingSet, config, treeIdx, exec);
+		frontierNodes = trainBreadthLevel(frontierNodes, trainingSet, config, treeIdx, nodeTable, exec);
 		final Node root;
 		if (!frontierNodes.isEmpty()) {
 			root = frontierNodes.get(0).getParent();
@@ -121,17 +125,18 @@ public final class LearnerEntangled {
 
 		// learn until only leafs are left
 		while (!frontierNodes.isEmpty()) {
-			frontierNodes = trainBreadthLevel(frontierNodes, trainingSet, config, treeIdx, exec);
+			frontierNodes = trainBreadthLevel(frontierNodes, trainingSet, config, treeIdx, nodeTable, exec);
 		}
 		return root;
 	}
 
 	private static <T extends RealType<T>> List<FrontierNode<T>> trainBreadthLevel(
 			final List<FrontierNode<T>> frontierNodes, final SampleTrainingObject<T> trainingSet,
-			final HoughForestLearnerConfig config, final int treeIdx, final ExecutionContext exec)
-			throws CanceledExecutionException {
+			final HoughForestLearnerConfig config, final int treeIdx, final NodeTable nodeTable,
+			final ExecutionContext exec) throws CanceledExecutionException {
 		final List<FrontierNode<T>> newList = new ArrayList<>();
-		final Map<SampleTrainingObject<?>, Node> newNodesToSet = new HashMap<>();
+		// the frontier nodes whose ids are set for the training objects, a leaf keeps the id of its frontier node
+		final Map<SampleTrainingObject<?>, FrontierNode<T>> newNodesToSet = new HashMap<>();
 		for (final FrontierNode<T> frontierNode : frontierNodes) {
 			exec.checkCanceled();
 			final SampleTrainingObject<T> sampledTObjects = frontierNode.getSampledTrainingObjects();
@@ -145,7 +150,8 @@ public final class LearnerEntangled {
 			if (leafNodeOpt.isPresent()) {
 				final EntangledLeafNode leafNode = leafNodeOpt.get();
 				LearnerUtils.convertToLeafNode(frontierNode, leafNode);
-				newNodesToSet.put(leafNode.getAllTrainingObjects(), leafNode);
+				nodeTable.set(frontierNode.getNodeId(), leafNode);
+				newNodesToSet.put(leafNode.getAllTrainingObjects(), frontierNode);
 				continue;
 			}
 
@@ -163,7 +169,8 @@ public final class LearnerEntangled {
 						frontierNode.getProbabilities(), depth, nodeIdx, frontierNode.getAllTrainingObjects(),
 						frontierNode.getParent());
 				LearnerUtils.convertToLeafNode(frontierNode, ln);
-				newNodesToSet.put(frontierNode.getAllTrainingObjects(), ln);
+				nodeTable.set(frontierNode.getNodeId(), ln);
+				newNodesToSet.put(frontierNode.getAllTrainingObjects(), frontierNode);
 				continue;
 			}
 			if (bestSplit[1].size() == 0) {
@@ -171,7 +178,8 @@ public final class LearnerEntangled {
 						frontierNode.getProbabilities(), depth, nodeIdx, frontierNode.getAllTrainingObjects(),
 						frontierNode.getParent());
 				LearnerUtils.convertToLeafNode(frontierNode, ln);
-				newNodesToSet.put(frontierNode.getAllTrainingObjects(), ln);
+				nodeTable.set(frontierNode.getNodeId(), ln);
+				newNodesToSet.put(frontierNode.getAllTrainingObjects(), frontierNode);
 				continue;
 			}
 
@@ -187,12 +195,15 @@ public final class LearnerEntangled {
 
 			// train children recursively
 			final SplitNode splitNode = new SplitNode(bestSplitFunction, depth, nodeIdx,
-					frontierNode.getOffsetVectors(), frontierNode.getProbabilities(), frontierNode.getParent());
+					frontierNode.getSampledTrainingObjects().getOffsets(), frontierNode.getProbabilities(),
+					frontierNode.getParent());
 			final FrontierNode<T> leftChild = new FrontierNode<>(bestSplit[0], splitAllTObjects[0], depth + 1,
 					(nodeIdx * 2) + 1, splitNode, true, classProbabilities0, random.nextLong());
+			leftChild.setNodeId(nodeTable.add(leftChild, frontierNode.getNodeId()));
 			newNodesToSet.put(splitAllTObjects[0], leftChild);
 			final FrontierNode<T> rightChild = new FrontierNode<>(bestSplit[1], splitAllTObjects[1], depth + 1,
 					(nodeIdx * 2) + 2, splitNode, false, classProbabilities1, random.nextLong());
+			rightChild.setNodeId(nodeTable.add(rightChild, frontierNode.getNodeId()));
 			newNodesToSet.put(splitAllTObjects[1], rightChild);
 			splitNode.setLeftChild(leftChild);
 			splitNode.setRightChild(rightChild);
@@ -202,7 +213,7 @@ public final class LearnerEntangled {
 		}
 		// update node grid
 		for (final SampleTrainingObject<?> tObjs : newNodesToSet.keySet()) {
-			LearnerUtils.setNodeGrid(treeIdx, tObjs, newNodesToSet.get(tObjs));
+			LearnerUtils.setNodeGrid(treeIdx, tObjs, newNodesToSet.get(tObjs).getNodeId());
 		}
 		return newList;
 	}
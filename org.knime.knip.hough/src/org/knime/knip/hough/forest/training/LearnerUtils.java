@@ -57,7 +57,6 @@ import org.knime.knip.hough.forest.HoughForestUtils;
 import org.knime.knip.hough.forest.node.EntangledLeafNode;
 import org.knime.knip.hough.forest.node.FrontierNode;
 import org.knime.knip.hough.forest.node.LeafNode;
-import org.knime.knip.hough.forest.node.Node;
 import org.knime.knip.hough.forest.node.SplitNode;
 import org.knime.knip.hough.forest.split.SplitFunction;
 import org.knime.knip.hough.forest.split.SplitUtils;
@@ -194,9 +193,17 @@ public final class LearnerUtils {
 		}
 	}
 
-	static void setNodeGrid(final int treeIdx, final SampleTrainingObject<?> sample, final Node node) {
+	static NodeTable getNodeTable(final int treeIdx, final SampleTrainingObject<?> trainingSet) {
+		if (trainingSet.getElementsOfSample().isEmpty()) {
+			// no patch reads the nodes
+			return new NodeTable();
+		}
+		return trainingSet.getElementsOfSample().get(0).getNodeGrid().getNodeTable(treeIdx);
+	}
+
+	static void setNodeGrid(final int treeIdx, final SampleTrainingObject<?> sample, final int nodeId) {
 		for (final TrainingObject<?> tObj : sample.getElementsOfSample()) {
-			tObj.setNodeGrid(treeIdx, node);
+			tObj.setNodeId(treeIdx, nodeId);
 		}
 	}
 
@@ -0,0 +1,194 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.forest.training;
+
+import java.util.Arrays;
+
+/**
+ * Holds for each tree the ids of the nodes the patches of an image have reached during learning. The ids of a tree
+ * are stored in a flattened array with the index <i>x * height + y</i> of the grid position and refer to a
+ * {@link NodeTable} shared by all images. Since the nodes of a level are set all at once after the level has been
+ * learned, the attributes read by the entangled split functions are copied into maps of the same layout at that
+ * time, so that a test reads them at the position of its probe instead of looking up the node. The maps are only
+ * allocated if a split function reading them is enabled.
+ * 
+ * @author Simon Schmid, University of Konstanz
+ */
+public final class NodeGrid {
+
+	private final NodeTable[] m_nodeTables;
+	private final int[][] m_nodeIds;
+	// per tree the class with the higher probability in the reached node, null if not read
+	private final byte[][] m_mapClasses;
+	// per tree whether the probability of class 0 is above 0.5 in the reached node, null if not read
+	private final boolean[][] m_background;
+	// per tree the interleaved x and y of the offset mean of the reached node, null if not read
+	private final float[][] m_offsetMeans;
+	private final int m_width;
+	private final int m_height;
+
+	/**
+	 * Creates a grid in which no patch has reached a node yet.
+	 * 
+	 * @param nodeTables the node table of each tree
+	 * @param width the number of patches in x direction
+	 * @param height the number of patches in y direction
+	 * @param mapClasses true, if the class with the higher probability is read, i.e. by the MAP class split
+	 * @param offsetMeans true, if the background and the offset mean are read, i.e. by the offset similarity split
+	 */
+	public NodeGrid(final NodeTable[] nodeTables, final int width, final int height, final boolean mapClasses,
+			final boolean offsetMeans) {
+		m_nodeTables = nodeTables;
+		m_width = width;
+		m_height = height;
+		m_nodeIds = new int[nodeTables.length][width * height];
+		for (final int[] nodeIds : m_nodeIds) {
+			Arrays.fill(nodeIds, -1);
+		}
+		m_mapClasses = mapClasses ? new byte[nodeTables.length][width * height] : null;
+		m_background = offsetMeans ? new boolean[nodeTables.length][width * height] : null;
+		m_offsetMeans = offsetMeans ? new float[nodeTables.length][2 * width * height] : null;
+	}
+
+	/**
+	 * @param x position in the 1st dimension
+	 * @param y position in the 2nd dimension
+	 * @return true, if the position is part of the grid
+	 */
+	public boolean contains(final int x, final int y) {
+		return x >= 0 && y >= 0 && x < m_width && y < m_height;
+	}
+
+	/**
+	 * @param treeIdx index of the tree
+	 * @param x position in the 1st dimension
+	 * @param y position in the 2nd dimension
+	 * @return the id of the node in the {@link NodeTable} of the tree or -1, if the patch has not reached a node yet
+	 */
+	public int getNodeId(final int treeIdx, final int x, final int y) {
+		return m_nodeIds[treeIdx][x * m_height + y];
+	}
+
+	/**
+	 * Sets the node reached by a patch and copies its attributes into the maps. The node needs to be written into the
+	 * {@link NodeTable} of the tree before.
+	 * 
+	 * @param treeIdx index of the tree
+	 * @param x position in the 1st dimension
+	 * @param y position in the 2nd dimension
+	 * @param nodeId the id of the node in the {@link NodeTable} of the tree
+	 */
+	public void setNodeId(final int treeIdx, final int x, final int y, final int nodeId) {
+		final int i = x * m_height + y;
+		final NodeTable nodes = m_nodeTables[treeIdx];
+		m_nodeIds[treeIdx][i] = nodeId;
+		if (m_mapClasses != null) {
+			m_mapClasses[treeIdx][i] = (byte) (nodes.getProbability(nodeId, 0) > nodes.getProbability(nodeId, 1) ? 0
+					: 1);
+		}
+		if (m_offsetMeans != null) {
+			m_background[treeIdx][i] = nodes.getProbability(nodeId, 0) > 0.5;
+			m_offsetMeans[treeIdx][2 * i] = (float) nodes.getOffsetMean(nodeId, 0);
+			m_offsetMeans[treeIdx][2 * i + 1] = (float) nodes.getOffsetMean(nodeId, 1);
+		}
+	}
+
+	/**
+	 * @param treeIdx index of the tree
+	 * @param x position in the 1st dimension
+	 * @param y position in the 2nd dimension
+	 * @return the class with the higher probability in the node reached by the patch, 1 if both are equal
+	 */
+	public int getMapClass(final int treeIdx, final int x, final int y) {
+		return m_mapClasses[treeIdx][x * m_height + y];
+	}
+
+	/**
+	 * @param treeIdx index of the tree
+	 * @param x position in the 1st dimension
+	 * @param y position in the 2nd dimension
+	 * @return true, if the probability of class 0 is above 0.5 in the node reached by the patch
+	 */
+	public boolean isBackground(final int treeIdx, final int x, final int y) {
+		return m_background[treeIdx][x * m_height + y];
+	}
+
+	/**
+	 * @param treeIdx index of the tree
+	 * @param x position in the 1st dimension
+	 * @param y position in the 2nd dimension
+	 * @param d the dimension
+	 * @return the mean of the offsets of the node reached by the patch in the dimension
+	 */
+	public double getOffsetMean(final int treeIdx, final int x, final int y, final int d) {
+		return m_offsetMeans[treeIdx][2 * (x * m_height + y) + d];
+	}
+
+	/**
+	 * @param treeIdx index of the tree
+	 * @return the node table of the tree
+	 */
+	public NodeTable getNodeTable(final int treeIdx) {
+		return m_nodeTables[treeIdx];
+	}
+
+	/**
+	 * @return the number of patches in x direction
+	 */
+	public int getWidth() {
+		return m_width;
+	}
+
+	/**
+	 * @return the number of patches in y direction
+	 */
+	public int getHeight() {
+		return m_height;
+	}
+}
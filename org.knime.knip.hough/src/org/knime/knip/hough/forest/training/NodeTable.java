@@ -0,0 +1,184 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2017
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.hough.forest.training;
+
+import java.util.Arrays;
+
+import org.knime.knip.hough.forest.node.Node;
+
+/**
+ * Holds the attributes of the nodes of one tree which are read by the entangled split functions during learning in
+ * packed primitive arrays. A node is identified by an id which is assigned when its frontier node is created, the
+ * split or leaf node replacing the frontier node keeps this id. The ids do not depend on the index of the node in the
+ * tree, which overflows for trees deeper than 30 levels.
+ * 
+ * @author Simon Schmid, University of Konstanz
+ */
+public final class NodeTable {
+
+	/** the id of the parent of the root */
+	public static final int NO_PARENT = -1;
+
+	private int m_size;
+	// interleaved probabilities of class 0 and 1
+	private double[] m_probabilities = new double[32];
+	// interleaved x and y of the offset mean
+	private double[] m_offsetMeans = new double[32];
+	private int[] m_parents = new int[16];
+	private int[] m_depths = new int[16];
+	private int[] m_nodeIdxs = new int[16];
+
+	/**
+	 * Creates an empty table for each tree.
+	 * 
+	 * @param numTrees the number of trees
+	 * @return the tables
+	 */
+	public static NodeTable[] create(final int numTrees) {
+		final NodeTable[] tables = new NodeTable[numTrees];
+		for (int i = 0; i < numTrees; i++) {
+			tables[i] = new NodeTable();
+		}
+		return tables;
+	}
+
+	/**
+	 * Removes all nodes, e.g. if a tree is learned again.
+	 */
+	public void clear() {
+		m_size = 0;
+	}
+
+	/**
+	 * Adds a new node to the table.
+	 * 
+	 * @param node the node
+	 * @param parent the id of the parent of the node or {@link #NO_PARENT}, if the node is the root
+	 * @return the id of the node
+	 */
+	public int add(final Node node, final int parent) {
+		if (m_size == m_parents.length) {
+			final int capacity = 2 * m_size;
+			m_probabilities = Arrays.copyOf(m_probabilities, 2 * capacity);
+			m_offsetMeans = Arrays.copyOf(m_offsetMeans, 2 * capacity);
+			m_parents = Arrays.copyOf(m_parents, capacity);
+			m_depths = Arrays.copyOf(m_depths, capacity);
+			m_nodeIdxs = Arrays.copyOf(m_nodeIdxs, capacity);
+		}
+		final int id = m_size++;
+		m_parents[id] = parent;
+		set(id, node);
+		return id;
+	}
+
+	/**
+	 * Overwrites the attributes of a node, e.g. if its frontier node has been replaced by a leaf. The parent is kept.
+	 * 
+	 * @param id the id of the node
+	 * @param node the node replacing it
+	 */
+	public void set(final int id, final Node node) {
+		m_probabilities[2 * id] = node.getProbability(0);
+		m_probabilities[2 * id + 1] = node.getProbability(1);
+		final double[] offsetMean = node.getOffsetMean();
+		m_offsetMeans[2 * id] = offsetMean[0];
+		m_offsetMeans[2 * id + 1] = offsetMean[1];
+		m_depths[id] = node.getDepth();
+		m_nodeIdxs[id] = node.getNodeIdx();
+	}
+
+	/**
+	 * @param id the id of the node
+	 * @param clazz 0 or 1
+	 * @return the probability of the class
+	 */
+	public double getProbability(final int id, final int clazz) {
+		return m_probabilities[2 * id + clazz];
+	}
+
+	/**
+	 * @param id the id of the node
+	 * @param d the dimension
+	 * @return the mean of the offsets in the dimension
+	 */
+	public double getOffsetMean(final int id, final int d) {
+		return m_offsetMeans[2 * id + d];
+	}
+
+	/**
+	 * @param id the id of the node
+	 * @return the id of the parent or -1, if the node is the root
+	 */
+	public int getParent(final int id) {
+		return m_parents[id];
+	}
+
+	/**
+	 * @param id the id of the node
+	 * @return the depth of the node
+	 */
+	public int getDepth(final int id) {
+		return m_depths[id];
+	}
+
+	/**
+	 * @param id the id of the node
+	 * @return the index of the node in the tree
+	 */
+	public int getNodeIdx(final int id) {
+		return m_nodeIdxs[id];
+	}
+
+	/**
+	 * @return the number of nodes
+	 */
+	public int size() {
+		return m_size;
+	}
+}
@@ -48,10 +48,11 @@
  */
 package org.knime.knip.hough.forest.training;
 
-import org.knime.knip.hough.forest.node.Node;
+import org.knime.knip.hough.features.FeatureTensor;
 
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.RealType;
 
 /**
  * Holds the class and offset of a patch to provide a fast access during learning.
@@ -63,22 +64,28 @@ public abstract class PatchObject<T> {
 	private final RandomAccess<T>[] m_randomAccess;
 	private final PatchObject<T>[][] m_grid;
 	private final int[] m_position;
-	private final Node[][][] m_nodeGrid;
+	private final NodeGrid m_nodeGrid;
 	private final int m_numFeatures;
+	private final FeatureTensor m_features;
+	private final int m_featureIndex;
 
 	/**
 	 * Creates a new object conatining all relevant parameters.
 	 * 
 	 * @param patch a {@link RandomAccessibleInterval}
+	 * @param features the materialized feature descriptor the patch is part of, may be null
 	 */
 	public PatchObject(final RandomAccessibleInterval<T> patch, final RandomAccess<T>[] randomAccess,
-			final PatchObject<T>[][] grid, final int[] position, final Node[][][] nodeGrid) {
+			final PatchObject<T>[][] grid, final int[] position, final NodeGrid nodeGrid,
+			final FeatureTensor features) {
 		m_min = new int[] { (int) patch.min(0), (int) patch.min(1) };
 		m_randomAccess = randomAccess;
 		m_grid = grid;
 		m_position = position;
 		m_nodeGrid = nodeGrid;
 		m_numFeatures = (int) patch.dimension(2);
+		m_features = features;
+		m_featureIndex = features == null ? -1 : features.getIndex(m_min[0], m_min[1], 0);
 	}
 
 	/**
@@ -92,6 +99,40 @@ public abstract class PatchObject<T> {
 		return m_randomAccess[i];
 	}
 
+	/**
+	 * @return the materialized feature descriptor or null, if the features are accessed by the random accesses
+	 */
+	public FeatureTensor getFeatureTensor() {
+		return m_features;
+	}
+
+	/**
+	 * @return the index of the min of the patch in the {@link FeatureTensor}
+	 */
+	public int getFeatureIndex() {
+		return m_featureIndex;
+	}
+
+	/**
+	 * Returns the feature value at a position relative to the min of the patch.
+	 * 
+	 * @param treeIdx index of the tree, used to get the random access if the features are not materialized
+	 * @param x position in the 1st dimension
+	 * @param y position in the 2nd dimension
+	 * @param feature the feature
+	 * @return the value
+	 */
+	public float getValue(final int treeIdx, final int x, final int y, final int feature) {
+		if (m_features != null) {
+			return m_features.get(m_featureIndex, x, y, feature);
+		}
+		final RandomAccess<T> ra = m_randomAccess[treeIdx];
+		ra.setPosition(m_min[0] + x, 0);
+		ra.setPosition(m_min[1] + y, 1);
+		ra.setPosition(feature, 2);
+		return ((RealType<?>) ra.get()).getRealFloat();
+	}
+
 	/**
 	 * @return the grid
 	 */
@@ -108,24 +149,22 @@ public abstract class PatchObject<T> {
 	}
 
 	/**
-	 * @return the nodeGrid
+	 * @return the ids of the nodes reached by the patches of the image
 	 */
-	public Node[][][] getNodeGrid() {
+	public NodeGrid getNodeGrid() {
 		return m_nodeGrid;
 	}
 
 	public boolean isPosInGridInterval(final int[] pos) {
-		if (pos[0] < 0 || pos[1] < 0) {
-			return false;
-		}
-		if ((pos[0] >= m_nodeGrid[0].length) || (pos[1] >= m_nodeGrid[0][0].length)) {
-			return false;
-		}
-		return true;
+		return isPosInGridInterval(pos[0], pos[1]);
+	}
+
+	public boolean isPosInGridInterval(final int x, final int y) {
+		return m_nodeGrid.contains(x, y);
 	}
 
-	public void setNodeGrid(final int idx, final Node node) {
-		m_nodeGrid[idx][m_position[0]][m_position[1]] = node;
+	public void setNodeId(final int treeIdx, final int nodeId) {
+		m_nodeGrid.setNodeId(treeIdx, m_position[0], m_position[1], nodeId);
 	}
 
 	/**
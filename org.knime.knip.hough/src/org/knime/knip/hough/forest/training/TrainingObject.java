@@ -48,7 +48,7 @@
  */
 package org.knime.knip.hough.forest.training;
 
-import org.knime.knip.hough.forest.node.Node;
+import org.knime.knip.hough.features.FeatureTensor;
 
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
@@ -68,11 +68,12 @@ public final class TrainingObject<T> extends PatchObject<T> {
 	 * @param patch a {@link RandomAccessibleInterval}
 	 * @param clazz 0 or 1 (other numbers are mapped to 1)
 	 * @param offset a two dimensional offset vector
+	 * @param features the materialized feature descriptor the patch is part of, may be null
 	 */
 	public TrainingObject(final RandomAccessibleInterval<T> patch, final RandomAccess<T>[] randomAccess,
 			final int clazz, final int[] offset, TrainingObject<T>[][] grid, final int[] position,
-			final Node[][][] nodeGrid) {
-		super(patch, randomAccess, grid, position, nodeGrid);
+			final NodeGrid nodeGrid, final FeatureTensor features) {
+		super(patch, randomAccess, grid, position, nodeGrid, features);
 		m_clazz = clazz == 0 ? 0 : 1;
 		m_offset = offset;
 	}
@@ -11,6 +11,7 @@ import org.knime.knip.hough.forest.HoughForest;
 import org.knime.knip.hough.forest.node.LeafNode;
 import org.knime.knip.hough.forest.node.Node;
 import org.knime.knip.hough.forest.node.SplitNode;
+import org.knime.knip.hough.forest.prediction.PredictionGrid;
 import org.knime.knip.hough.forest.split.AncestorNodePairSplitFunction;
 import org.knime.knip.hough.forest.split.DefaultSplitFunction;
 import org.knime.knip.hough.forest.split.MAPClassSplitFunction;
@@ -27,16 +28,18 @@ public final class HoughForestEvaluator {
 
 	private static final NodeLogger LOGGER = NodeLogger.getLogger(HoughForestEvaluator.class);
 
-	public static RandomAccessibleInterval<IntType> createNodeIdxImage(final Node[][][] nodeGrid, final OpService ops) {
+	public static RandomAccessibleInterval<IntType> createNodeIdxImage(final PredictionGrid<?> grid,
+			final OpService ops) {
+		final int numTrees = grid.getForest().getNumTrees();
 		final RandomAccessibleInterval<IntType> img = ops.create()
-				.img(new FinalInterval(nodeGrid[0].length, nodeGrid[0][0].length, nodeGrid.length), new IntType());
+				.img(new FinalInterval(grid.getWidth(), grid.getHeight(), numTrees), new IntType());
 		final RandomAccess<IntType> raImg = img.randomAccess();
 		final Map<Integer, Integer> values = new HashMap<>();
 		int counter = 0;
-		for (int channel = 0; channel < nodeGrid.length; channel++) {
-			for (int i = 0; i < nodeGrid[0].length; i++) {
-				for (int j = 0; j < nodeGrid[0][0].length; j++) {
-					final int nodeIdx = nodeGrid[channel][i][j].getNodeIdx();
+		for (int channel = 0; channel < numTrees; channel++) {
+			for (int i = 0; i < grid.getWidth(); i++) {
+				for (int j = 0; j < grid.getHeight(); j++) {
+					final int nodeIdx = grid.getNodeIdx(channel, i * grid.getHeight() + j);
 					if (!values.containsKey(nodeIdx)) {
 						values.put(nodeIdx, counter++);
 					}
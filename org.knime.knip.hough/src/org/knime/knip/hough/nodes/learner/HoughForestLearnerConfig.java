@@ -14,6 +14,7 @@ import org.knime.core.node.defaultnodesettings.SettingsModelInteger;
 import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelLong;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.knime.knip.hough.features.FeatureTensor;
 
 public final class HoughForestLearnerConfig {
 
@@ -73,6 +74,10 @@ public final class HoughForestLearnerConfig {
 
 	public static final String ENTANGLED_DEFAULT_SF = "use_entangled_default";
 
+	// Performance
+	private final SettingsModelBoolean m_denseFeatures = createDenseFeaturesBoolModel();
+	private final SettingsModelString m_featureLayout = createFeatureLayoutModel(m_denseFeatures);
+
 	private final SettingsModel[] m_listSettingsModels = { m_colImage, m_colLabel, m_numSamples, m_numSplitFunctions,
 			m_depth, m_minSizeSample, m_numTrees, m_useSeed, m_seed, m_convertToLab, m_firstDerivative,
 			m_useAbsoluteFirstDerivative, m_secondDerivative, m_useAbsoluteSecondDerivative, m_hog, m_hogNumBins,
@@ -82,6 +87,9 @@ public final class HoughForestLearnerConfig {
 			m_horizontalMaxOffset, m_verticalMinOffset, m_verticalMaxOffset, m_ancestorNodePairThreshold,
 			m_offsetSimilarityNodePairSigma };
 
+	// settings added after the first release, these are loaded with their defaults if missing
+	private final SettingsModel[] m_listAddedSettingsModels = { m_denseFeatures, m_featureLayout };
+
 	static SettingsModelString createColSelectionModel() {
 		return new SettingsModelString("image_column", "");
 	}
@@ -236,10 +244,26 @@ public final class HoughForestLearnerConfig {
 		return modelDoubleBounded;
 	}
 
+	static SettingsModelBoolean createDenseFeaturesBoolModel() {
+		return new SettingsModelBoolean("is_dense_features", false);
+	}
+
+	static SettingsModelString createFeatureLayoutModel(final SettingsModelBoolean denseFeaturesModel) {
+		final SettingsModelString settingsModelString = new SettingsModelString("feature_layout",
+				FeatureTensor.Layout.PIXEL_MAJOR.getName());
+		settingsModelString.setEnabled(false);
+		denseFeaturesModel
+				.addChangeListener(l -> settingsModelString.setEnabled(denseFeaturesModel.getBooleanValue()));
+		return settingsModelString;
+	}
+
 	protected void saveSettingsTo(NodeSettingsWO settings) {
 		for (final SettingsModel s : m_listSettingsModels) {
 			s.saveSettingsTo(settings);
 		}
+		for (final SettingsModel s : m_listAddedSettingsModels) {
+			s.saveSettingsTo(settings);
+		}
 	}
 
 	protected void validateSettings(NodeSettingsRO settings) throws InvalidSettingsException {
@@ -252,6 +276,13 @@ public final class HoughForestLearnerConfig {
 		for (final SettingsModel s : m_listSettingsModels) {
 			s.loadSettingsFrom(settings);
 		}
+		for (final SettingsModel s : m_listAddedSettingsModels) {
+			try {
+				s.loadSettingsFrom(settings);
+			} catch (final InvalidSettingsException e) {
+				// settings of an older version, keep the default
+			}
+		}
 
 		if (getNumTrees() < 1) {
 			throw new InvalidSettingsException("The number of trees must be at least 1!");
@@ -555,4 +586,18 @@ public final class HoughForestLearnerConfig {
 	public double getOffsetSimilarityNodePairSigma() {
 		return m_offsetSimilarityNodePairSigma.getDoubleValue();
 	}
+
+	/**
+	 * @return the denseFeatures
+	 */
+	public boolean getDenseFeatures() {
+		return m_denseFeatures.getBooleanValue();
+	}
+
+	/**
+	 * @return the featureLayout
+	 */
+	public FeatureTensor.Layout getFeatureLayout() {
+		return FeatureTensor.Layout.fromName(m_featureLayout.getStringValue());
+	}
 }
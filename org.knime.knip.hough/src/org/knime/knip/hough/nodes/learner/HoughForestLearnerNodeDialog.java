@@ -56,6 +56,7 @@ import org.knime.core.node.defaultnodesettings.DialogComponentButton;
 import org.knime.core.node.defaultnodesettings.DialogComponentColumnNameSelection;
 import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
 import org.knime.core.node.defaultnodesettings.DialogComponentNumberEdit;
+import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
 import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
 import org.knime.core.node.defaultnodesettings.SettingsModelDoubleBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelInteger;
@@ -63,6 +64,7 @@ import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelLong;
 import org.knime.knip.base.data.img.ImgPlusValue;
 import org.knime.knip.base.data.labeling.LabelingValue;
+import org.knime.knip.hough.features.FeatureTensor;
 
 /**
  * The node dialog of the node which learns a hough forest.
@@ -192,6 +194,14 @@ final class HoughForestLearnerNodeDialog extends DefaultNodeSettingsPane {
 				.createOffsetSimilarityNodePairSigmaModel(useOffsetNodePairSplitFunctionModel);
 		addDialogComponent(new DialogComponentNumber(offsetSimilarityNodePairSigmaModel, "Sigma", 1.0));
 
+		// Performance
+		createNewTab("Performance");
+		final SettingsModelBoolean denseFeaturesModel = HoughForestLearnerConfig.createDenseFeaturesBoolModel();
+		addDialogComponent(new DialogComponentBoolean(denseFeaturesModel, "Store features in a dense array"));
+		addDialogComponent(new DialogComponentStringSelection(
+				HoughForestLearnerConfig.createFeatureLayoutModel(denseFeaturesModel), "Feature layout",
+				FeatureTensor.Layout.getNames()));
+
 		/*
 		 * Change Listeners
 		 */
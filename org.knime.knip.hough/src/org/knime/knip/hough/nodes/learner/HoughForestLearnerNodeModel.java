@@ -75,10 +75,12 @@ import org.knime.knip.base.data.img.ImgPlusValue;
 import org.knime.knip.base.data.labeling.LabelingValue;
 import org.knime.knip.core.KNIPGateway;
 import org.knime.knip.hough.features.FeatureDescriptor;
+import org.knime.knip.hough.features.FeatureTensor;
 import org.knime.knip.hough.forest.HoughForest;
-import org.knime.knip.hough.forest.node.Node;
 import org.knime.knip.hough.forest.node.SplitNode;
 import org.knime.knip.hough.forest.training.LearnerEntangled;
+import org.knime.knip.hough.forest.training.NodeGrid;
+import org.knime.knip.hough.forest.training.NodeTable;
 import org.knime.knip.hough.forest.training.SampleTrainingObject;
 import org.knime.knip.hough.forest.training.TrainingObject;
 import org.knime.knip.hough.grid.Grid;
@@ -173,6 +175,7 @@ final class HoughForestLearnerNodeModel<T extends RealType<T>, L> extends NodeMo
 		final long[] patchGap = new long[] { m_config.getPatchGapX(), m_config.getPatchGapY(), 0 };
 		final long[] patchsize = new long[] { m_config.getPatchWidth(), m_config.getPatchHeight(), -1 };
 		final List<TrainingObject<FloatType>> trainingObjects = new ArrayList<>();
+		final NodeTable[] nodeTables = NodeTable.create(m_config.getNumTrees());
 
 		// check dimensionality of the image in the first row
 		final CloseableRowIterator rowIterator = table.iterator();
@@ -211,7 +214,7 @@ final class HoughForestLearnerNodeModel<T extends RealType<T>, L> extends NodeMo
 			if (listImg.size() >= batchSize) {
 				threads.add(new ExtractParallel((List<ImgPlus<T>>) listImg.clone(),
 						(List<RandomAccessibleInterval<LabelingType<L>>>) listLabelings.clone(),
-						(List<RowKey>) listRowKey.clone(), featureDescriptor, patchGap, patchsize, exec,
+						(List<RowKey>) listRowKey.clone(), featureDescriptor, patchGap, patchsize, nodeTables, exec,
 						progressStepSize));
 				listImg.clear();
 				listRowKey.clear();
@@ -220,7 +223,7 @@ final class HoughForestLearnerNodeModel<T extends RealType<T>, L> extends NodeMo
 		}
 		if (listImg.size() > 0) {
 			threads.add(new ExtractParallel(listImg, listLabelings, listRowKey, featureDescriptor, patchGap, patchsize,
-					exec, progressStepSize));
+					nodeTables, exec, progressStepSize));
 		}
 		try {
 			final List<Future<List<TrainingObject<FloatType>>>> invokeAll = es.invokeAll(threads);
@@ -246,17 +249,18 @@ final class HoughForestLearnerNodeModel<T extends RealType<T>, L> extends NodeMo
 		// } else {
 		// trees = Learner.trainForest(new SampleTrainingObject<>(trainingObjects), m_config, exec, seed);
 		// }
-		final HoughForest forest = new HoughForest(trees, patchsize, featureDescriptor);
+		final HoughForest forest = new HoughForest(trees, patchsize, featureDescriptor, m_thresholds);
 
 		if (forest.getListOfTrees().isEmpty()) {
 			throw new IllegalStateException("Learned Hough Forest has no trees!");
 		}
 
-		Node[][] nodes = trainingObjects.get(0).getNodeGrid()[0];
+		final NodeGrid nodeGrid = trainingObjects.get(0).getNodeGrid();
 		StringBuilder stringBuilder = new StringBuilder();
-		for (int i = 0; i < nodes[0].length; i++) {
-			for (int j = 0; j < nodes.length; j++) {
-				stringBuilder.append(String.format("%2d ", nodes[j][i].getNodeIdx()));
+		for (int i = 0; i < nodeGrid.getHeight(); i++) {
+			for (int j = 0; j < nodeGrid.getWidth(); j++) {
+				stringBuilder.append(
+						String.format("%2d ", nodeTables[0].getNodeIdx(nodeGrid.getNodeId(0, j, i))));
 			}
 			stringBuilder.append("\n");
 		}
@@ -378,6 +382,7 @@ final class HoughForestLearnerNodeModel<T extends RealType<T>, L> extends NodeMo
 		private final List<RowKey> m_listRowKey;
 		private final long[] m_patchGap;
 		private final long[] m_patchSize;
+		private final NodeTable[] m_nodeTables;
 		private final ExecutionContext m_exec;
 		private final double m_progress;
 		private final FeatureDescriptor<T> m_featureDescriptor;
@@ -385,7 +390,7 @@ final class HoughForestLearnerNodeModel<T extends RealType<T>, L> extends NodeMo
 		private ExtractParallel(final List<ImgPlus<T>> images,
 				final List<RandomAccessibleInterval<LabelingType<L>>> labelings, final List<RowKey> listRowKey,
 				final FeatureDescriptor<T> featureDescriptor, final long[] patchGap, final long[] patchSize,
-				final ExecutionContext exec, final double progressStepSize) {
+				final NodeTable[] nodeTables, final ExecutionContext exec, final double progressStepSize) {
 			assert images.size() == labelings.size();
 			m_images = images;
 			m_labelings = labelings;
@@ -393,6 +398,7 @@ final class HoughForestLearnerNodeModel<T extends RealType<T>, L> extends NodeMo
 			m_featureDescriptor = featureDescriptor;
 			m_patchGap = patchGap;
 			m_patchSize = patchSize;
+			m_nodeTables = nodeTables;
 			m_exec = exec;
 			m_progress = progressStepSize;
 		}
@@ -426,14 +432,17 @@ final class HoughForestLearnerNodeModel<T extends RealType<T>, L> extends NodeMo
 				for (int i = 0; i < randomAccess.length; i++) {
 					randomAccess[i] = featureImg.randomAccess();
 				}
+				final FeatureTensor features = m_config.getDenseFeatures()
+						? FeatureTensor.create(featureImg, m_config.getFeatureLayout()) : null;
 
 				setThresholds(getMins(featureImg), getMaxs(featureImg));
 				final Grid<FloatType> grid = Grids.createGrid(featureImg, m_patchGap, m_patchSize);
 				@SuppressWarnings("unchecked")
 				final TrainingObject<FloatType>[][] trainingObjectGrid = new TrainingObject[(int) grid
 						.dimension(0)][(int) grid.dimension(1)];
-				final Node[][][] nodeGrid = new Node[m_config
-						.getNumTrees()][(int) grid.dimension(0)][(int) grid.dimension(1)];
+				final NodeGrid nodeGrid = new NodeGrid(m_nodeTables, (int) grid.dimension(0),
+						(int) grid.dimension(1), m_config.getEntanglement() && m_config.getUseMapClassSplitFunction(),
+						m_config.getEntanglement() && m_config.getUseOffsetSimilarityNodePairSplitFunction());
 				final RandomAccess<RandomAccessibleInterval<FloatType>> raGrid = grid.randomAccess();
 				final LabelRegions<L> labelRegions = new LabelRegions<>(labeling);
 				final int numLabels = labelRegions.getExistingLabels().size();
@@ -466,14 +475,14 @@ final class HoughForestLearnerNodeModel<T extends RealType<T>, L> extends NodeMo
 														- midOfPatch.getFloatPosition(0)),
 												(int) (labelRegion.getCenterOfMass().getFloatPosition(1)
 														- midOfPatch.getFloatPosition(1)) },
-										trainingObjectGrid, pos, nodeGrid);
+										trainingObjectGrid, pos, nodeGrid, features);
 								allTObjects.add(tObj);
 								trainingObjectGrid[i][j] = tObj;
 								continue;
 							}
 						}
 						final TrainingObject<FloatType> tObj = new TrainingObject<>(patch, randomAccess, 0,
-								new int[] {}, trainingObjectGrid, pos, nodeGrid);
+								new int[] {}, trainingObjectGrid, pos, nodeGrid, features);
 						allTObjects.add(tObj);
 						trainingObjectGrid[i][j] = tObj;
 					}
@@ -9,10 +9,14 @@ import org.knime.core.node.defaultnodesettings.SettingsModelDouble;
 import org.knime.core.node.defaultnodesettings.SettingsModelDoubleBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.knime.knip.hough.features.FeatureTensor;
+import org.knime.knip.hough.forest.prediction.VoteAccumulator;
+import org.knime.knip.hough.forest.prediction.VoteSmoothing;
 
 public final class HoughForestPredictorConfig {
 
 	private final SettingsModelString m_colImage = createColSelectModel();
+	private final SettingsModelString m_colMask = createMaskColSelectModel();
 	// Patch Extraction
 	private final SettingsModelIntegerBounded m_patchGapX = createPatchGapXModel();
 	private final SettingsModelIntegerBounded m_patchGapY = createPatchGapYModel();
@@ -43,6 +47,28 @@ public final class HoughForestPredictorConfig {
 	private final SettingsModelBoolean m_outputAdvanced = createOutputAdvancedBoolModel();
 	private final SettingsModelBoolean m_outputFeatureImg = createOutputFeatureImgBoolModel();
 	private final SettingsModelBoolean m_outputNodeIdx = createOutputNodeIdxBoolModel();
+	// Performance
+	private final SettingsModelBoolean m_parallelTrees = createParallelTreesBoolModel();
+	private final SettingsModelBoolean m_parallelTiles = createParallelTilesBoolModel();
+	private final SettingsModelIntegerBounded m_tileSize = createTileSizeModel(m_parallelTiles);
+	private final SettingsModelBoolean m_denseFeatures = createDenseFeaturesBoolModel();
+	private final SettingsModelString m_featureLayout = createFeatureLayoutModel(m_denseFeatures);
+	private final SettingsModelBoolean m_precomputeFeatureOffsets = createPrecomputeFeatureOffsetsBoolModel(
+			m_denseFeatures);
+	private final SettingsModelString m_featurePrecision = createFeaturePrecisionModel(m_denseFeatures);
+	private final SettingsModelBoolean m_quantizationReport = createQuantizationReportBoolModel(m_denseFeatures);
+	private final SettingsModelBoolean m_cascade = createCascadeBoolModel();
+	private final SettingsModelIntegerBounded m_cascadeNumTrees = createCascadeNumTreesModel(m_cascade);
+	private final SettingsModelDoubleBounded m_cascadeThreshold = createCascadeThresholdModel(m_cascade);
+	private final SettingsModelBoolean m_coarseToFine = createCoarseToFineBoolModel();
+	private final SettingsModelIntegerBounded m_coarseStrideFactor = createCoarseStrideFactorModel(m_coarseToFine);
+	private final SettingsModelDoubleBounded m_refinementThreshold = createRefinementThresholdModel(m_coarseToFine);
+	private final SettingsModelBoolean m_sparseVotes = createSparseVotesBoolModel();
+	private final SettingsModelString m_voteAccumulation = createVoteAccumulationModel();
+	private final SettingsModelString m_voteSmoothing = createVoteSmoothingModel();
+	private final SettingsModelBoolean m_fusedPeakSearch = createFusedPeakSearchBoolModel();
+	private final SettingsModelIntegerBounded m_maxNumObjects = createMaxNumObjectsModel(m_multipleDetection);
+	private final SettingsModelBoolean m_reverseVoteIndex = createReverseVoteIndexBoolModel();
 
 	private final SettingsModel[] m_listSettingsModels = { m_colImage, m_patchGapX, m_patchGapY,
 			m_spanIntervalBackprojection, m_sigmaXY, m_sigmaZ, m_thresholdMultipleDetection, m_multipleDetection,
@@ -50,10 +76,22 @@ public final class HoughForestPredictorConfig {
 			m_scaleValue2, m_scaleValue3, m_scaleValue4, m_outputVotes, m_outputMaxima, m_outputAdvanced,
 			m_outputFeatureImg, m_outputNodeIdx };
 
+	// settings added after the first release, these are loaded with their defaults if missing
+	private final SettingsModel[] m_listAddedSettingsModels = { m_parallelTrees, m_parallelTiles, m_tileSize,
+			m_denseFeatures, m_featureLayout, m_precomputeFeatureOffsets, m_featurePrecision, m_quantizationReport,
+			m_cascade,
+			m_cascadeNumTrees, m_cascadeThreshold, m_colMask, m_coarseToFine, m_coarseStrideFactor,
+			m_refinementThreshold, m_sparseVotes, m_voteAccumulation, m_voteSmoothing, m_fusedPeakSearch,
+			m_maxNumObjects, m_reverseVoteIndex };
+
 	static SettingsModelString createColSelectModel() {
 		return new SettingsModelString("image_column", "");
 	}
 
+	static SettingsModelString createMaskColSelectModel() {
+		return new SettingsModelString("mask_column", "");
+	}
+
 	static SettingsModelIntegerBounded createPatchGapXModel() {
 		return new SettingsModelIntegerBounded("gap_horizontal", 8, 1, Integer.MAX_VALUE);
 	}
@@ -134,10 +172,138 @@ public final class HoughForestPredictorConfig {
 		return new SettingsModelBoolean("is_output_node_idx", false);
 	}
 
+	static SettingsModelBoolean createParallelTreesBoolModel() {
+		return new SettingsModelBoolean("is_parallel_trees", false);
+	}
+
+	static SettingsModelBoolean createParallelTilesBoolModel() {
+		return new SettingsModelBoolean("is_parallel_tiles", false);
+	}
+
+	static SettingsModelIntegerBounded createTileSizeModel(final SettingsModelBoolean parallelTilesModel) {
+		final SettingsModelIntegerBounded settingsModelInteger = new SettingsModelIntegerBounded("tile_size", 64, 1,
+				Integer.MAX_VALUE);
+		settingsModelInteger.setEnabled(false);
+		parallelTilesModel
+				.addChangeListener(l -> settingsModelInteger.setEnabled(parallelTilesModel.getBooleanValue()));
+		return settingsModelInteger;
+	}
+
+	static SettingsModelBoolean createDenseFeaturesBoolModel() {
+		return new SettingsModelBoolean("is_dense_features", false);
+	}
+
+	static SettingsModelString createFeatureLayoutModel(final SettingsModelBoolean denseFeaturesModel) {
+		final SettingsModelString settingsModelString = new SettingsModelString("feature_layout",
+				FeatureTensor.Layout.PIXEL_MAJOR.getName());
+		settingsModelString.setEnabled(false);
+		denseFeaturesModel
+				.addChangeListener(l -> settingsModelString.setEnabled(denseFeaturesModel.getBooleanValue()));
+		return settingsModelString;
+	}
+
+	static SettingsModelBoolean createPrecomputeFeatureOffsetsBoolModel(final SettingsModelBoolean denseFeaturesModel) {
+		final SettingsModelBoolean settingsModelBoolean = new SettingsModelBoolean("precompute_feature_offsets", true);
+		settingsModelBoolean.setEnabled(false);
+		denseFeaturesModel
+				.addChangeListener(l -> settingsModelBoolean.setEnabled(denseFeaturesModel.getBooleanValue()));
+		return settingsModelBoolean;
+	}
+
+	static SettingsModelString createFeaturePrecisionModel(final SettingsModelBoolean denseFeaturesModel) {
+		final SettingsModelString settingsModelString = new SettingsModelString("feature_precision",
+				FeatureTensor.Precision.FLOAT.getName());
+		settingsModelString.setEnabled(false);
+		denseFeaturesModel
+				.addChangeListener(l -> settingsModelString.setEnabled(denseFeaturesModel.getBooleanValue()));
+		return settingsModelString;
+	}
+
+	static SettingsModelBoolean createQuantizationReportBoolModel(final SettingsModelBoolean denseFeaturesModel) {
+		final SettingsModelBoolean settingsModelBoolean = new SettingsModelBoolean("is_quantization_report", false);
+		settingsModelBoolean.setEnabled(false);
+		denseFeaturesModel
+				.addChangeListener(l -> settingsModelBoolean.setEnabled(denseFeaturesModel.getBooleanValue()));
+		return settingsModelBoolean;
+	}
+
+	static SettingsModelBoolean createCascadeBoolModel() {
+		return new SettingsModelBoolean("is_cascade", false);
+	}
+
+	static SettingsModelIntegerBounded createCascadeNumTreesModel(final SettingsModelBoolean cascadeModel) {
+		final SettingsModelIntegerBounded settingsModelInteger = new SettingsModelIntegerBounded("cascade_num_trees",
+				3, 1, Integer.MAX_VALUE);
+		settingsModelInteger.setEnabled(false);
+		cascadeModel.addChangeListener(l -> settingsModelInteger.setEnabled(cascadeModel.getBooleanValue()));
+		return settingsModelInteger;
+	}
+
+	static SettingsModelDoubleBounded createCascadeThresholdModel(final SettingsModelBoolean cascadeModel) {
+		final SettingsModelDoubleBounded settingsModelDouble = new SettingsModelDoubleBounded("cascade_threshold",
+				0.05, 0.0, 1.0);
+		settingsModelDouble.setEnabled(false);
+		cascadeModel.addChangeListener(l -> settingsModelDouble.setEnabled(cascadeModel.getBooleanValue()));
+		return settingsModelDouble;
+	}
+
+	static SettingsModelBoolean createCoarseToFineBoolModel() {
+		return new SettingsModelBoolean("is_coarse_to_fine", false);
+	}
+
+	static SettingsModelIntegerBounded createCoarseStrideFactorModel(final SettingsModelBoolean coarseToFineModel) {
+		final SettingsModelIntegerBounded settingsModelInteger = new SettingsModelIntegerBounded(
+				"coarse_stride_factor", 4, 2, Integer.MAX_VALUE);
+		settingsModelInteger.setEnabled(false);
+		coarseToFineModel
+				.addChangeListener(l -> settingsModelInteger.setEnabled(coarseToFineModel.getBooleanValue()));
+		return settingsModelInteger;
+	}
+
+	static SettingsModelDoubleBounded createRefinementThresholdModel(final SettingsModelBoolean coarseToFineModel) {
+		final SettingsModelDoubleBounded settingsModelDouble = new SettingsModelDoubleBounded("refinement_threshold",
+				0.2, 0.0, 1.0);
+		settingsModelDouble.setEnabled(false);
+		coarseToFineModel.addChangeListener(l -> settingsModelDouble.setEnabled(coarseToFineModel.getBooleanValue()));
+		return settingsModelDouble;
+	}
+
+	static SettingsModelBoolean createSparseVotesBoolModel() {
+		return new SettingsModelBoolean("is_sparse_votes", false);
+	}
+
+	static SettingsModelString createVoteAccumulationModel() {
+		return new SettingsModelString("vote_accumulation", VoteAccumulator.Mode.PRIVATE.getName());
+	}
+
+	static SettingsModelString createVoteSmoothingModel() {
+		return new SettingsModelString("vote_smoothing", VoteSmoothing.Method.CONVOLUTION.getName());
+	}
+
+	static SettingsModelBoolean createFusedPeakSearchBoolModel() {
+		return new SettingsModelBoolean("is_fused_peak_search", false);
+	}
+
+	static SettingsModelIntegerBounded createMaxNumObjectsModel(final SettingsModelBoolean multipleDetectionModel) {
+		final SettingsModelIntegerBounded settingsModelInteger = new SettingsModelIntegerBounded("max_num_objects", 0,
+				0, Integer.MAX_VALUE);
+		settingsModelInteger.setEnabled(false);
+		multipleDetectionModel
+				.addChangeListener(l -> settingsModelInteger.setEnabled(multipleDetectionModel.getBooleanValue()));
+		return settingsModelInteger;
+	}
+
+	static SettingsModelBoolean createReverseVoteIndexBoolModel() {
+		return new SettingsModelBoolean("is_reverse_vote_index", false);
+	}
+
 	protected void saveSettingsTo(NodeSettingsWO settings) {
 		for (final SettingsModel s : m_listSettingsModels) {
 			s.saveSettingsTo(settings);
 		}
+		for (final SettingsModel s : m_listAddedSettingsModels) {
+			s.saveSettingsTo(settings);
+		}
 	}
 
 	protected void validateSettings(NodeSettingsRO settings) throws InvalidSettingsException {
@@ -150,6 +316,13 @@ public final class HoughForestPredictorConfig {
 		for (final SettingsModel s : m_listSettingsModels) {
 			s.loadSettingsFrom(settings);
 		}
+		for (final SettingsModel s : m_listAddedSettingsModels) {
+			try {
+				s.loadSettingsFrom(settings);
+			} catch (final InvalidSettingsException e) {
+				// settings of an older version, keep the default
+			}
+		}
 		// Set scales array
 		if (m_scaleBool4.isEnabled() && m_scaleBool4.getBooleanValue()) {
 			m_scales = new double[] { m_scaleValue1.getDoubleValue(), m_scaleValue2.getDoubleValue(),
@@ -173,6 +346,13 @@ public final class HoughForestPredictorConfig {
 		return m_colImage.getStringValue();
 	}
 
+	/**
+	 * @return the colMask, null or empty if no mask is used
+	 */
+	public String getColMask() {
+		return m_colMask.getStringValue();
+	}
+
 	/**
 	 * @return the patchGapX
 	 */
@@ -271,4 +451,144 @@ public final class HoughForestPredictorConfig {
 		return m_maxSuppressionMultipleDetection.getDoubleValue();
 	}
 
+	/**
+	 * @return the parallelTrees
+	 */
+	public boolean getParallelTrees() {
+		return m_parallelTrees.getBooleanValue();
+	}
+
+	/**
+	 * @return the parallelTiles
+	 */
+	public boolean getParallelTiles() {
+		return m_parallelTiles.getBooleanValue();
+	}
+
+	/**
+	 * @return the tileSize
+	 */
+	public int getTileSize() {
+		return m_tileSize.getIntValue();
+	}
+
+	/**
+	 * @return the denseFeatures
+	 */
+	public boolean getDenseFeatures() {
+		return m_denseFeatures.getBooleanValue();
+	}
+
+	/**
+	 * @return the featureLayout
+	 */
+	public FeatureTensor.Layout getFeatureLayout() {
+		return FeatureTensor.Layout.fromName(m_featureLayout.getStringValue());
+	}
+
+	/**
+	 * @return the precomputeFeatureOffsets
+	 */
+	public boolean getPrecomputeFeatureOffsets() {
+		return m_precomputeFeatureOffsets.getBooleanValue();
+	}
+
+	/**
+	 * @return the featurePrecision
+	 */
+	public FeatureTensor.Precision getFeaturePrecision() {
+		return FeatureTensor.Precision.fromName(m_featurePrecision.getStringValue());
+	}
+
+	/**
+	 * @return the quantizationReport
+	 */
+	public boolean getQuantizationReport() {
+		return m_quantizationReport.getBooleanValue();
+	}
+
+	/**
+	 * @return the cascade
+	 */
+	public boolean getCascade() {
+		return m_cascade.getBooleanValue();
+	}
+
+	/**
+	 * @return the cascadeNumTrees
+	 */
+	public int getCascadeNumTrees() {
+		return m_cascadeNumTrees.getIntValue();
+	}
+
+	/**
+	 * @return the cascadeThreshold
+	 */
+	public double getCascadeThreshold() {
+		return m_cascadeThreshold.getDoubleValue();
+	}
+
+	/**
+	 * @return the coarseToFine
+	 */
+	public boolean getCoarseToFine() {
+		return m_coarseToFine.getBooleanValue();
+	}
+
+	/**
+	 * @return the coarseStrideFactor
+	 */
+	public int getCoarseStrideFactor() {
+		return m_coarseStrideFactor.getIntValue();
+	}
+
+	/**
+	 * @return the refinementThreshold
+	 */
+	public double getRefinementThreshold() {
+		return m_refinementThreshold.getDoubleValue();
+	}
+
+	/**
+	 * @return the sparseVotes
+	 */
+	public boolean getSparseVotes() {
+		return m_sparseVotes.getBooleanValue();
+	}
+
+	/**
+	 * @return the voteAccumulation
+	 */
+	public VoteAccumulator.Mode getVoteAccumulation() {
+		return VoteAccumulator.Mode.fromName(m_voteAccumulation.getStringValue());
+	}
+
+	/**
+	 * @return the voteSmoothing
+	 */
+	public VoteSmoothing.Method getVoteSmoothing() {
+		return VoteSmoothing.Method.fromName(m_voteSmoothing.getStringValue());
+	}
+
+	/**
+	 * @return the fusedPeakSearch
+	 */
+	public boolean getFusedPeakSearch() {
+		return m_fusedPeakSearch.getBooleanValue();
+	}
+
+	/**
+	 * @return the maxNumObjects, 0 if the number of objects is not limited
+	 */
+	public int getMaxNumObjects() {
+		return m_maxNumObjects.getIntValue();
+	}
+
+	/**
+	 * @return the reverseVoteIndex
+	 */
+	public boolean getReverseVoteIndex() {
+		return m_reverseVoteIndex.getBooleanValue();
+	}
+
 }
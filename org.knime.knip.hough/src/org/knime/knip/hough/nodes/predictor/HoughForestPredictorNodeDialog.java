@@ -55,9 +55,14 @@ import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
 import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
 import org.knime.core.node.defaultnodesettings.DialogComponentColumnNameSelection;
 import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
+import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
 import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
 import org.knime.core.node.defaultnodesettings.SettingsModelDouble;
 import org.knime.knip.base.data.img.ImgPlusValue;
+import org.knime.knip.base.data.labeling.LabelingValue;
+import org.knime.knip.hough.features.FeatureTensor;
+import org.knime.knip.hough.forest.prediction.VoteAccumulator;
+import org.knime.knip.hough.forest.prediction.VoteSmoothing;
 
 /**
  * The node dialog of the node which makes predictions based on a hough forest.
@@ -72,6 +77,9 @@ final class HoughForestPredictorNodeDialog extends DefaultNodeSettingsPane {
 		createNewGroup("Input");
 		addDialogComponent(new DialogComponentColumnNameSelection(HoughForestPredictorConfig.createColSelectModel(),
 				"Image column", 1, true, ImgPlusValue.class));
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				HoughForestPredictorConfig.createMaskColSelectModel(), "Mask column", 1, false, true,
+				ImgPlusValue.class, LabelingValue.class));
 
 		// Patch Extraction
 		createNewGroup("Patch Extraction");
@@ -125,6 +133,9 @@ final class HoughForestPredictorNodeDialog extends DefaultNodeSettingsPane {
 		final SettingsModelDouble maxSuppressionModel = HoughForestPredictorConfig
 				.createMaxSuppressionMultipleDetectionDoubleModel(multipleDetectionBoolModel);
 		addDialogComponent(new DialogComponentNumber(maxSuppressionModel, "Max. suppression", 5.0));
+		addDialogComponent(new DialogComponentNumber(
+				HoughForestPredictorConfig.createMaxNumObjectsModel(multipleDetectionBoolModel),
+				"Max. number of objects (0 = unlimited)", 1));
 
 		// Back Projection
 		createNewGroup("Back Projection");
@@ -144,6 +155,54 @@ final class HoughForestPredictorNodeDialog extends DefaultNodeSettingsPane {
 		addDialogComponent(new DialogComponentBoolean(HoughForestPredictorConfig.createOutputNodeIdxBoolModel(),
 				"Node index image"));
 
+		// Performance
+		createNewTab("Performance");
+		addDialogComponent(new DialogComponentBoolean(HoughForestPredictorConfig.createParallelTreesBoolModel(),
+				"Predict trees in parallel"));
+		final SettingsModelBoolean parallelTilesModel = HoughForestPredictorConfig.createParallelTilesBoolModel();
+		addDialogComponent(new DialogComponentBoolean(parallelTilesModel, "Predict tiles in parallel"));
+		addDialogComponent(new DialogComponentNumber(HoughForestPredictorConfig.createTileSizeModel(parallelTilesModel),
+				"Tile size", 8));
+		final SettingsModelBoolean denseFeaturesModel = HoughForestPredictorConfig.createDenseFeaturesBoolModel();
+		addDialogComponent(new DialogComponentBoolean(denseFeaturesModel, "Store features in a dense array"));
+		addDialogComponent(new DialogComponentStringSelection(
+				HoughForestPredictorConfig.createFeatureLayoutModel(denseFeaturesModel), "Feature layout",
+				FeatureTensor.Layout.getNames()));
+		addDialogComponent(new DialogComponentStringSelection(
+				HoughForestPredictorConfig.createFeaturePrecisionModel(denseFeaturesModel), "Feature precision",
+				FeatureTensor.Precision.getNames()));
+		addDialogComponent(new DialogComponentBoolean(
+				HoughForestPredictorConfig.createQuantizationReportBoolModel(denseFeaturesModel),
+				"Log the effect of the quantization"));
+		addDialogComponent(new DialogComponentBoolean(
+				HoughForestPredictorConfig.createPrecomputeFeatureOffsetsBoolModel(denseFeaturesModel),
+				"Precompute feature offsets of the trees"));
+		final SettingsModelBoolean cascadeModel = HoughForestPredictorConfig.createCascadeBoolModel();
+		addDialogComponent(new DialogComponentBoolean(cascadeModel, "Reject background patches early (cascade)"));
+		addDialogComponent(new DialogComponentNumber(
+				HoughForestPredictorConfig.createCascadeNumTreesModel(cascadeModel), "Number of trees before rejection",
+				1));
+		addDialogComponent(new DialogComponentNumber(
+				HoughForestPredictorConfig.createCascadeThresholdModel(cascadeModel), "Rejection threshold", 0.01));
+		final SettingsModelBoolean coarseToFineModel = HoughForestPredictorConfig.createCoarseToFineBoolModel();
+		addDialogComponent(new DialogComponentBoolean(coarseToFineModel, "Coarse-to-fine sampling"));
+		addDialogComponent(new DialogComponentNumber(
+				HoughForestPredictorConfig.createCoarseStrideFactorModel(coarseToFineModel), "Coarse stride factor",
+				1));
+		addDialogComponent(new DialogComponentNumber(
+				HoughForestPredictorConfig.createRefinementThresholdModel(coarseToFineModel),
+				"Refinement threshold (fraction of maximum)", 0.05));
+		addDialogComponent(new DialogComponentBoolean(HoughForestPredictorConfig.createSparseVotesBoolModel(),
+				"Sparse vote accumulation"));
+		addDialogComponent(new DialogComponentStringSelection(HoughForestPredictorConfig.createVoteAccumulationModel(),
+				"Vote accumulation of parallel trees", VoteAccumulator.Mode.getNames()));
+		addDialogComponent(new DialogComponentStringSelection(HoughForestPredictorConfig.createVoteSmoothingModel(),
+				"Vote smoothing", VoteSmoothing.Method.getNames()));
+		addDialogComponent(new DialogComponentBoolean(HoughForestPredictorConfig.createFusedPeakSearchBoolModel(),
+				"Fused smoothing and maxima search"));
+		addDialogComponent(new DialogComponentBoolean(HoughForestPredictorConfig.createReverseVoteIndexBoolModel(),
+				"Index votes for back projection"));
+
 		/*
 		 * Change listeners
 		 */
@@ -55,8 +55,11 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 
 import org.knime.core.data.DataCell;
@@ -66,6 +69,8 @@ import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.append.AppendedColumnRow;
 import org.knime.core.data.container.AbstractCellFactory;
 import org.knime.core.data.container.ColumnRearranger;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.BufferedDataTableHolder;
 import org.knime.core.node.CanceledExecutionException;
@@ -94,19 +99,21 @@ import org.knime.knip.base.data.img.ImgPlusCellFactory;
 import org.knime.knip.base.data.img.ImgPlusValue;
 import org.knime.knip.base.data.labeling.LabelingCell;
 import org.knime.knip.base.data.labeling.LabelingCellFactory;
+import org.knime.knip.base.data.labeling.LabelingValue;
 import org.knime.knip.base.nodes.proc.maxfinder.MaximumFinderOp;
 import org.knime.knip.core.KNIPGateway;
 import org.knime.knip.core.awt.labelingcolortable.DefaultLabelingColorTable;
 import org.knime.knip.core.data.img.DefaultLabelingMetadata;
 import org.knime.knip.core.util.StringTransformer;
 import org.knime.knip.hough.features.FeatureDescriptor;
+import org.knime.knip.hough.features.FeatureTensor;
 import org.knime.knip.hough.forest.HoughForest;
-import org.knime.knip.hough.forest.node.Node;
-import org.knime.knip.hough.forest.prediction.PredictionObject;
+import org.knime.knip.hough.forest.prediction.PeakFinder;
+import org.knime.knip.hough.forest.prediction.PredictionGrid;
 import org.knime.knip.hough.forest.prediction.PredictorEntangled;
-import org.knime.knip.hough.grid.Grid;
-import org.knime.knip.hough.grid.Grids;
-import org.knime.knip.hough.nodes.evaluator.HoughForestEvaluator;
+import org.knime.knip.hough.forest.prediction.ReverseVoteIndex;
+import org.knime.knip.hough.forest.prediction.SparseVotes;
+import org.knime.knip.hough.forest.prediction.VoteSmoothing;
 import org.knime.knip.hough.ports.HoughForestModelPortObject;
 
 import net.imagej.ImgPlus;
@@ -149,12 +156,16 @@ final class HoughForestPredictorNodeModel<T extends RealType<T>> extends NodeMod
 	// Data table and column indices for the table cell view
 	private BufferedDataTable m_data;
 	private int m_imageColIdx;
+	private int m_maskColIdx;
 	private int m_labelColIdx;
 
 	// Services
 	private OpService m_ops;
 	private ExecutorService m_es;
 
+	// kernels of the smoothing with ImageJ Ops by their sigmas, shared by the cell factories of all rows
+	private final Map<String, RandomAccessibleInterval<T>> m_kernels = new ConcurrentHashMap<>();
+
 	public HoughForestPredictorNodeModel() {
 		super(new PortType[] { HoughForestModelPortObject.TYPE, BufferedDataTable.TYPE },
 				new PortType[] { BufferedDataTable.TYPE });
@@ -188,6 +199,10 @@ final class HoughForestPredictorNodeModel<T extends RealType<T>> extends NodeMod
 		if (m_config.getOutputNodeIdx()) {
 			specs.add(uniqueNameGenerator.newColumn("NodeIdx", ImgPlusCell.TYPE));
 		}
+		if (m_config.getCascade()) {
+			specs.add(uniqueNameGenerator.newColumn("Rejected patches", IntCell.TYPE));
+			specs.add(uniqueNameGenerator.newColumn("Rejection rate", DoubleCell.TYPE));
+		}
 		return specs.toArray(new DataColumnSpec[specs.size()]);
 	}
 
@@ -200,6 +215,14 @@ final class HoughForestPredictorNodeModel<T extends RealType<T>> extends NodeMod
 		} else {
 			throw new InvalidSettingsException("An image column must be selected!");
 		}
+		if (m_config.getColMask() != null && !m_config.getColMask().isEmpty()) {
+			m_maskColIdx = inSpec.findColumnIndex(m_config.getColMask());
+			if (m_maskColIdx < 0)
+				throw new InvalidSettingsException(
+						"Mask column '" + m_config.getColMask() + "' not found in the input table!");
+		} else {
+			m_maskColIdx = -1;
+		}
 	}
 
 	/** {@inheritDoc} */
@@ -255,6 +278,7 @@ final class HoughForestPredictorNodeModel<T extends RealType<T>> extends NodeMod
 			public void init(ExecutionContext ctx) throws Exception {
 				super.init(ctx);
 				m_exec = ctx;
+				m_es = KNIPGateway.threads().getExecutorService();
 			}
 
 			@Override
@@ -341,6 +365,7 @@ final class HoughForestPredictorNodeModel<T extends RealType<T>> extends NodeMod
 	@Override
 	protected void reset() {
 		m_data = null;
+		m_kernels.clear();
 	}
 
 	private final class PredictCellFactory extends AbstractCellFactory {
@@ -373,8 +398,11 @@ final class HoughForestPredictorNodeModel<T extends RealType<T>> extends NodeMod
 			final double[] scales = m_config.getScales();
 			// will collect votes of the different scales
 			final List<RandomAccessibleInterval<FloatType>> votesAllSc = new ArrayList<>(scales.length);
-			// will collect all prediction objects the of different scales
-			final List<List<PredictionObject<FloatType>>> listPredObjAllSc = new ArrayList<>(scales.length);
+			// will collect the grids of predicted patches of the different scales
+			final List<PredictionGrid<FloatType>> gridsAllSc = new ArrayList<>(scales.length);
+			// will collect the patches voting into each cell of the different scales, if selected
+			final List<ReverseVoteIndex> reverseIndexAllSc = m_config.getReverseVoteIndex()
+					? new ArrayList<>(scales.length) : null;
 
 			// Get the feature descriptor stored in the model and apply it to the image
 			final FeatureDescriptor<T> featureDescriptor = (FeatureDescriptor<T>) m_houghForest.getFeatureDescriptor();
@@ -386,8 +414,13 @@ final class HoughForestPredictorNodeModel<T extends RealType<T>> extends NodeMod
 				throw new IllegalArgumentException("Predictions with this model can only be done on color images!");
 			}
 			final RandomAccessibleInterval<FloatType> featureImg = featureDescriptor.apply(img);
+			// region of interest, patches whose centers are outside are not predicted
+			final RandomAccessibleInterval<BitType> mask = m_maskColIdx < 0 ? null : createMask(row, img);
+			final RandomAccess<BitType> raMask = mask == null ? null : mask.randomAccess();
 
-			RandomAccessibleInterval<IntType> nodeIdxImage = null;
+			// statistics of the cascade over all scales
+			int numPatches = 0;
+			int numRejected = 0;
 			// === Do the voting for each scale ===
 			for (int scIdx = 0; scIdx < scales.length; scIdx++) {
 				// Scale the feature image, if necessary
@@ -400,76 +433,82 @@ final class HoughForestPredictorNodeModel<T extends RealType<T>> extends NodeMod
 							new NLinearInterpolatorFactory<T>());
 				}
 
-				final RandomAccess<FloatType>[] randomAccess = new RandomAccess[m_houghForest.getListOfTrees().size()];
-				for (int i = 0; i < randomAccess.length; i++) {
-					randomAccess[i] = scaledFeatureImage.randomAccess();
-				}
+				final FeatureTensor features = m_config.getDenseFeatures()
+						? FeatureTensor.create(scaledFeatureImage, m_config.getFeatureLayout(),
+								m_config.getFeaturePrecision(), m_houghForest.getFeatureRanges())
+						: null;
+
+				final FinalInterval scaledInterval = new FinalInterval(scaledFeatureImage.dimension(0),
+						scaledFeatureImage.dimension(1));
 
 				/*
 				 * === Patch Extraction ===
 				 */
-				// Build grid of patch descriptors
 				final long[] patchGap = new long[] { m_config.getPatchGapX(), m_config.getPatchGapY(), 0 };
-				final Grid<FloatType> grid = Grids.createGrid(scaledFeatureImage, patchGap,
-						m_houghForest.getPatchSize());
-				final RandomAccess<RandomAccessibleInterval<FloatType>> raGrid = grid.randomAccess();
-				@SuppressWarnings("rawtypes")
-				final PredictionObject[][] predictionObjectGrid = new PredictionObject[(int) grid
-						.dimension(0)][(int) grid.dimension(1)];
-				final Node[][][] nodeGrid = new Node[m_houghForest.getListOfTrees()
-						.size()][(int) grid.dimension(0)][(int) grid.dimension(1)];
-				final List<PredictionObject<FloatType>> listPredObjSc = new ArrayList<>(
-						(int) (grid.dimension(0) * grid.dimension(1)));
-				for (int i = 0; i < grid.dimension(0); i++) {
-					for (int j = 0; j < grid.dimension(1); j++) {
-						final int[] pos = new int[] { i, j, 0 };
-						raGrid.setPosition(pos);
-						final RandomAccessibleInterval<FloatType> patch = raGrid.get();
-						final int[] patchMid = new int[] { (int) (patch.min(0) + (patch.dimension(0) / 2)),
-								(int) (patch.min(1) + (patch.dimension(1) / 2)) };
-						final PredictionObject<FloatType> pObj = new PredictionObject<FloatType>(patch, randomAccess,
-								patchMid, predictionObjectGrid, pos, nodeGrid);
-						listPredObjSc.add(pObj);
-						predictionObjectGrid[i][j] = pObj;
-					}
+				final PredictionGrid<FloatType> gridSc = createGrid(scaledFeatureImage, features, patchGap, raMask,
+						mask, scales[scIdx]);
+				if (m_config.getCoarseToFine()) {
+					// predict a rough vote map with a coarse stride and use the fine stride only around its peaks
+					final int factor = m_config.getCoarseStrideFactor();
+					final PredictionGrid<FloatType> gridCoarse = createGrid(scaledFeatureImage, features,
+							new long[] { patchGap[0] * factor, patchGap[1] * factor, 0 }, raMask, mask, scales[scIdx]);
+					final RandomAccessibleInterval<FloatType> votesCoarse = createVotes(img);
+					numRejected += PredictorEntangled.predictForest(m_houghForest, gridCoarse, votesCoarse,
+							scaledInterval, scales[scIdx],
+							new int[] { (int) patchGap[0] * factor, (int) patchGap[1] * factor }, m_config, m_es);
+					numPatches += gridCoarse.getNumActive();
+					final RandomAccessibleInterval<FloatType> votesCoarseBlurred = m_config.getSparseVotes()
+							? ((SparseVotes) votesCoarse).gauss(m_config.getSigmaXY())
+							: smooth(votesCoarse, m_config.getSigmaXY(), m_config.getSigmaXY());
+					PredictorEntangled.restrictToPeaks(m_houghForest, gridSc, votesCoarseBlurred,
+							m_config.getRefinementThreshold(), scales[scIdx]);
 				}
-				listPredObjAllSc.add(listPredObjSc);
+				numPatches += gridSc.getNumActive();
+				gridsAllSc.add(gridSc);
 
 				/*
 				 * === Prediction/Voting ===
 				 */
-				final RandomAccessibleInterval<FloatType> votesSc = m_ops.create()
-						.img(new FinalInterval(img.dimension(0), img.dimension(1)), new FloatType());
-				PredictorEntangled.predictForest(m_houghForest, listPredObjSc, votesSc.randomAccess(),
-						new FinalInterval(scaledFeatureImage.dimension(0), scaledFeatureImage.dimension(1)),
-						scales[scIdx], m_config);
+				final RandomAccessibleInterval<FloatType> votesSc = createVotes(img);
+				numRejected += PredictorEntangled.predictForest(m_houghForest, gridSc, votesSc, scaledInterval,
+						scales[scIdx], m_config, m_es);
+				if (reverseIndexAllSc != null) {
+					reverseIndexAllSc.add(new ReverseVoteIndex(gridSc, scaledInterval));
+				}
+				if (m_config.getQuantizationReport() && features != null && features.isQuantized()) {
+					logQuantizationReport(row.getKey().toString(), scales[scIdx], gridSc, features);
+				}
 				votesAllSc.add(votesSc);
-
-				// Node[][] nodes = listPredObjSc.get(0).getNodeGrid()[0];
-				// StringBuilder stringBuilder = new StringBuilder();
-				// for (int i = 0; i < nodes.length; i++) {
-				// for (int j = 0; j < nodes[0].length; j++) {
-				// stringBuilder.append(String.format("%3d ", nodes[i][j].getNodeIdx()));
-				// }
-				// stringBuilder.append("\n");
-				// }
-				// System.out.println(stringBuilder.toString());
-				nodeIdxImage = HoughForestEvaluator.createNodeIdxImage(listPredObjSc.get(0).getNodeGrid(), m_ops);
 			}
 
-			// Blur votes
+			// Blur votes, the fused peak search only needs them as output, it is always used for the best objects
+			final boolean isFusedPeakSearch = m_config.getFusedPeakSearch()
+					|| (m_config.getMultipleDetection() && m_config.getMaxNumObjects() > 0);
 			final RandomAccessibleInterval<FloatType> votes;
-			if (votesAllSc.size() > 1) {
-				votes = m_ops.filter().convolve(Views.stack(votesAllSc), (RandomAccessibleInterval<T>) m_ops.create()
-						.kernelGauss(m_config.getSigmaXY(), m_config.getSigmaXY(), m_config.getSigmaZ())); // TODO
-																											// filtering
-																											// in z
-																											// seems to
-																											// be
-																											// incorrect
+			List<SparseVotes> sparseVotesAllSc = null;
+			if (isFusedPeakSearch && !m_config.getOutputVotes()) {
+				votes = null;
+			} else if (m_config.getSparseVotes()) {
+				// only the blocks which received votes and their neighborhood are blurred
+				final List<SparseVotes> unblurredVotesAllSc = new ArrayList<>(votesAllSc.size());
+				for (final RandomAccessibleInterval<FloatType> votesSc : votesAllSc) {
+					unblurredVotesAllSc.add((SparseVotes) votesSc);
+				}
+				if (unblurredVotesAllSc.size() > 1) {
+					sparseVotesAllSc = SparseVotes.gauss(unblurredVotesAllSc, m_config.getSigmaXY(),
+							m_config.getSigmaZ());
+					votes = Views.stack(sparseVotesAllSc);
+				} else {
+					sparseVotesAllSc = Collections
+							.singletonList(unblurredVotesAllSc.get(0).gauss(m_config.getSigmaXY()));
+					votes = sparseVotesAllSc.get(0);
+				}
+			} else if (votesAllSc.size() > 1) {
+				// TODO filtering in z seems to be incorrect
+				votes = smooth(Views.stack(votesAllSc), m_config.getSigmaXY(), m_config.getSigmaXY(),
+						m_config.getSigmaZ());
 			} else {
-				votes = m_ops.filter().convolve(votesAllSc.get(0), (RandomAccessibleInterval<T>) m_ops.create()
-						.kernelGauss(m_config.getSigmaXY(), m_config.getSigmaXY()));
+				votes = smooth(votesAllSc.get(0), m_config.getSigmaXY(), m_config.getSigmaXY());
 			}
 			/*
 			 * === Bounding Box Estimation ===
@@ -477,7 +516,23 @@ final class HoughForestPredictorNodeModel<T extends RealType<T>> extends NodeMod
 			// Get points with max votes
 			final List<int[]> maxVotesPositions = new ArrayList<>();
 			final RandomAccessibleInterval<BitType> maxima;
-			if (m_config.getMultipleDetection()) {
+			if (isFusedPeakSearch) {
+				// smoothing, thresholding and the suppression of non-maxima tile by tile, only the peaks are kept
+				final List<PeakFinder.Peak> peaks;
+				if (m_config.getMultipleDetection()) {
+					peaks = PeakFinder.findPeaks(votesAllSc, m_config.getSigmaXY(), m_config.getSigmaZ(),
+							m_config.getThresholdMultipleDetection(), m_config.getMaxSuppressionMultipleDetection(),
+							m_config.getMaxNumObjects(), m_es);
+				} else {
+					// the global maximum is the best peak without threshold
+					peaks = PeakFinder.findPeaks(votesAllSc, m_config.getSigmaXY(), m_config.getSigmaZ(),
+							Double.NEGATIVE_INFINITY, 1, 1, m_es);
+				}
+				for (final PeakFinder.Peak peak : peaks) {
+					maxVotesPositions.add(peak.getPosition());
+				}
+				maxima = m_config.getOutputMaxima() ? createMaxima(votesAllSc, maxVotesPositions) : null;
+			} else if (m_config.getMultipleDetection()) {
 				final MaximumFinderOp<T> maximumFinderOp = new MaximumFinderOp<T>(0,
 						m_config.getMaxSuppressionMultipleDetection());
 				final IterableInterval<BitType> thresholdedVotings = m_ops.threshold().apply(Views.iterable(votes),
@@ -498,22 +553,24 @@ final class HoughForestPredictorNodeModel<T extends RealType<T>> extends NodeMod
 					}
 				}
 			} else {
-				maxima = m_ops.create().img(votes, new BitType());
-				final RandomAccess<BitType> raMax = maxima.randomAccess();
-				final int[] maxVotesPos = new int[votes.numDimensions()];
-				final Cursor<FloatType> cursor = Views.iterable(votes).cursor();
-				float tmpMax = Integer.MIN_VALUE;
-				while (cursor.hasNext()) {
-					cursor.fwd();
-					final float currentValue = cursor.get().getRealFloat();
-					if (currentValue > tmpMax) {
-						tmpMax = currentValue;
-						cursor.localize(maxVotesPos);
+				final int[] maxVotesPos;
+				if (m_config.getSparseVotes()) {
+					maxVotesPos = SparseVotes.getMaxPosition(sparseVotesAllSc);
+				} else {
+					maxVotesPos = new int[votes.numDimensions()];
+					final Cursor<FloatType> cursor = Views.iterable(votes).cursor();
+					float tmpMax = Integer.MIN_VALUE;
+					while (cursor.hasNext()) {
+						cursor.fwd();
+						final float currentValue = cursor.get().getRealFloat();
+						if (currentValue > tmpMax) {
+							tmpMax = currentValue;
+							cursor.localize(maxVotesPos);
+						}
 					}
 				}
 				maxVotesPositions.add(maxVotesPos);
-				raMax.setPosition(maxVotesPos);
-				raMax.get().set(true);
+				maxima = m_config.getOutputMaxima() ? createMaxima(votesAllSc, maxVotesPositions) : null;
 			}
 
 			/*
@@ -547,9 +604,19 @@ final class HoughForestPredictorNodeModel<T extends RealType<T>> extends NodeMod
 
 					// Get all the patches which vote inside the
 					// scaledIntervalOfMaxVotes
-					for (final PredictionObject<FloatType> predObj : listPredObjAllSc.get(i)) {
-						final Map<Localizable, Integer> mapVertices = PredictorEntangled.getVertices(predObj,
-								scaledIntervalOfMaxVotes, scales[i]);
+					final PredictionGrid<FloatType> grid = gridsAllSc.get(i);
+					final int numCandidates;
+					final int[] candidates;
+					if (reverseIndexAllSc != null) {
+						candidates = reverseIndexAllSc.get(i).getPatches(scaledIntervalOfMaxVotes);
+						numCandidates = candidates.length;
+					} else {
+						candidates = null;
+						numCandidates = grid.getNumCells();
+					}
+					for (int k = 0; k < numCandidates; k++) {
+						final Map<Localizable, Integer> mapVertices = PredictorEntangled.getVertices(grid,
+								candidates == null ? k : candidates[k], scaledIntervalOfMaxVotes, scales[i]);
 						vertices.addAll(mapVertices.keySet());
 						for (Localizable e : mapVertices.keySet()) {
 							raVerticesImage.setPosition(e);
@@ -626,16 +693,142 @@ final class HoughForestPredictorNodeModel<T extends RealType<T>> extends NodeMod
 					cells.add(m_imageCellFac
 							.createCell(new ImgPlus<>(ImgView.wrap(verticesImage, new ArrayImgFactory<IntType>()))));
 				}
-				// if (m_config.getOutputNodeIdx()) {
-				// cells.add(m_imageCellFac
-				// .createCell(new ImgPlus<>(ImgView.wrap(nodeIdxImage, new ArrayImgFactory<IntType>()))));
-				// }
+				if (m_config.getCascade()) {
+					cells.add(new IntCell(numRejected));
+					cells.add(new DoubleCell(numPatches == 0 ? 0 : (double) numRejected / numPatches));
+				}
 			} catch (IOException e) {
 				throw new IllegalStateException(e.getMessage());
 			}
 			return cells.toArray(new DataCell[cells.size()]);
 		}
 
+		/**
+		 * Extracts the grid of patches of a scaled feature image.
+		 * 
+		 * @param patchGap the stride of the grid
+		 * @param features the materialized feature image, may be null
+		 * @param raMask {@link RandomAccess} on the region of interest, patches whose centers are outside are inactive,
+		 *            may be null
+		 * @return the grid of patches
+		 */
+		private PredictionGrid<FloatType> createGrid(final RandomAccessibleInterval<FloatType> scaledFeatureImage,
+				final FeatureTensor features, final long[] patchGap, final RandomAccess<BitType> raMask,
+				final RandomAccessibleInterval<BitType> mask, final double scale) {
+			final PredictionGrid<FloatType> grid = new PredictionGrid<>(scaledFeatureImage, features, patchGap,
+					m_houghForest.getPatchSize());
+			if (raMask != null) {
+				for (int c = 0; c < grid.getNumCells(); c++) {
+					raMask.setPosition(Math.min((long) (grid.getPatchMidX(c) / scale), mask.max(0)), 0);
+					raMask.setPosition(Math.min((long) (grid.getPatchMidY(c) / scale), mask.max(1)), 1);
+					grid.setActive(c, raMask.get().get());
+				}
+			}
+			return grid;
+		}
+
+		/**
+		 * Predicts the patches of a grid a second time with the original feature values and logs the share of
+		 * predictions which reach a different leaf than with the quantized values.
+		 * 
+		 * @param rowKey the key of the row of the image
+		 * @param scale the scale of the grid
+		 * @param grid the grid predicted with the quantized features
+		 * @param features the quantized features
+		 */
+		private void logQuantizationReport(final String rowKey, final double scale,
+				final PredictionGrid<FloatType> grid, final FeatureTensor features) {
+			// patches reading the original values
+			final PredictionGrid<FloatType> gridFloat = grid.copy(null);
+			int numCompared = 0;
+			int numDifferent = 0;
+			for (int i = 0; i < m_houghForest.getListOfTrees().size(); i++) {
+				final int[] floatLeaves = PredictorEntangled.predictLeaves(m_houghForest, gridFloat, i, m_config);
+				for (int c = 0; c < floatLeaves.length; c++) {
+					// patches rejected by the cascade have not been predicted by all trees
+					if (floatLeaves[c] >= 0 && grid.getLeafId(i, c) >= 0) {
+						numCompared++;
+						if (grid.getLeafId(i, c) != floatLeaves[c]) {
+							numDifferent++;
+						}
+					}
+				}
+			}
+			getLogger().infoWithFormat(
+					"Row '%s', scale %s: %d of %d predictions (%.2f%%) reach a different leaf with quantized "
+							+ "features, %d feature values have been clamped.",
+					rowKey, scale, numDifferent, numCompared, 100.0 * numDifferent / Math.max(1, numCompared),
+					features.getNumClamped());
+		}
+
+		@SuppressWarnings("unchecked")
+		private RandomAccessibleInterval<FloatType> smooth(final RandomAccessibleInterval<FloatType> votes,
+				final double... sigmas) {
+			final VoteSmoothing.Method method = m_config.getVoteSmoothing();
+			if (method == VoteSmoothing.Method.CONVOLUTION) {
+				// the kernels only depend on the settings, hence they are created once
+				final RandomAccessibleInterval<T> kernel = m_kernels.computeIfAbsent(Arrays.toString(sigmas),
+						k -> (RandomAccessibleInterval<T>) m_ops.create().kernelGauss(sigmas));
+				return m_ops.filter().convolve(votes, kernel);
+			}
+			return VoteSmoothing.smooth(votes, sigmas, method == VoteSmoothing.Method.RECURSIVE, m_es);
+		}
+
+		private RandomAccessibleInterval<BitType> createMaxima(
+				final List<RandomAccessibleInterval<FloatType>> votesAllSc, final List<int[]> positions) {
+			final RandomAccessibleInterval<BitType> maxima = m_ops.create()
+					.img(votesAllSc.size() > 1 ? Views.stack(votesAllSc) : votesAllSc.get(0), new BitType());
+			final RandomAccess<BitType> raMax = maxima.randomAccess();
+			for (final int[] position : positions) {
+				raMax.setPosition(position);
+				raMax.get().set(true);
+			}
+			return maxima;
+		}
+
+		private RandomAccessibleInterval<FloatType> createVotes(final ImgPlus<T> img) {
+			if (m_config.getSparseVotes()) {
+				return new SparseVotes(img.dimension(0), img.dimension(1));
+			}
+			return m_ops.create().img(new FinalInterval(img.dimension(0), img.dimension(1)), new FloatType());
+		}
+
+		/**
+		 * Creates the region of interest of a row from its mask column. A pixel is inside, if its value in the mask
+		 * image is not zero or if it is labeled in the mask labeling.
+		 * 
+		 * @return the region of interest, null if the mask cell is missing
+		 */
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private RandomAccessibleInterval<BitType> createMask(final DataRow row, final ImgPlus<T> img) {
+			final DataCell cell = row.getCell(m_maskColIdx);
+			if (cell.isMissing()) {
+				return null;
+			}
+			final RandomAccessibleInterval<?> source = cell instanceof LabelingValue
+					? ((LabelingValue) cell).getLabeling() : ((ImgPlusValue) cell).getImgPlus();
+			if (source.numDimensions() < 2 || source.dimension(0) != img.dimension(0)
+					|| source.dimension(1) != img.dimension(1)) {
+				throw new IllegalArgumentException(
+						"The mask of row '" + row.getKey() + "' must have the same width and height as the image!");
+			}
+			final RandomAccessibleInterval<BitType> mask = m_ops.create()
+					.img(new FinalInterval(img.dimension(0), img.dimension(1)), new BitType());
+			final RandomAccess<?> raSource = source.randomAccess();
+			for (int d = 2; d < source.numDimensions(); d++) {
+				raSource.setPosition(source.min(d), d);
+			}
+			final Cursor<BitType> cursor = Views.iterable(mask).localizingCursor();
+			while (cursor.hasNext()) {
+				cursor.fwd();
+				raSource.setPosition(source.min(0) + cursor.getLongPosition(0), 0);
+				raSource.setPosition(source.min(1) + cursor.getLongPosition(1), 1);
+				final Object value = raSource.get();
+				cursor.get().set(value instanceof LabelingType ? !((LabelingType<?>) value).isEmpty()
+						: ((RealType<?>) value).getRealDouble() != 0);
+			}
+			return mask;
+		}
 	}
 
 	// ========= VIEW =========